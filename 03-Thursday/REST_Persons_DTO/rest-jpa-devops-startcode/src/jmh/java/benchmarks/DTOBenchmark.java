@@ -0,0 +1,52 @@
+package benchmarks;
+
+import DTO.PersonDTO;
+import DTO.PersonsDTO;
+import entities.Person;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping from entities to DTOs, as done for every response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DTOBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private List<Person> entities;
+    private Person person;
+
+    @Setup
+    public void setUp() {
+        entities = Datasets.entities(size);
+        person = entities.get(0);
+    }
+
+    @Benchmark
+    public PersonDTO personDTO() {
+        return new PersonDTO(person);
+    }
+
+    @Benchmark
+    public PersonsDTO personsDTO() {
+        return new PersonsDTO(entities);
+    }
+}
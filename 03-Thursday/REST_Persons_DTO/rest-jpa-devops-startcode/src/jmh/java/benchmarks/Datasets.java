@@ -0,0 +1,67 @@
+package benchmarks;
+
+import DTO.PersonDTO;
+import entities.Address;
+import entities.Person;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+/**
+ * Test data shared by the benchmarks. The data is generated from a fixed
+ * seed, so every run (and every commit) measures the same payloads.
+ */
+class Datasets {
+
+    private static final String[] FIRST_NAMES = {"Anna", "Bo", "Carl", "Dorthe", "Emil", "Frida", "Gustav", "Hanne"};
+    private static final String[] LAST_NAMES = {"Hansen", "Jensen", "Larsen", "Nielsen", "Olsen", "Pedersen", "Sørensen"};
+    private static final String[] CITIES = {"København", "Aarhus", "Odense", "Aalborg", "Esbjerg"};
+
+    private Datasets() {
+    }
+
+    static List<PersonDTO> persons(int size) {
+        Random random = new Random(42);
+        List<PersonDTO> persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int city = random.nextInt(CITIES.length);
+            persons.add(new PersonDTO(i + 1,
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    String.valueOf(20000000 + random.nextInt(80000000)),
+                    "Vej " + random.nextInt(200),
+                    1000 + city * 1000,
+                    CITIES[city]));
+        }
+        return persons;
+    }
+
+    static List<Person> entities(int size) {
+        List<Person> entities = new ArrayList<>(size);
+        for (PersonDTO dto : persons(size)) {
+            Person person = new Person(dto.getFirstName(), dto.getLastName(), dto.getPhone());
+            person.setId(dto.getId());
+            person.setAddress(new Address(dto.getStreet(), dto.getZip(), dto.getCity()));
+            entities.add(person);
+        }
+        return entities;
+    }
+
+    /**
+     * The test persistence unit on an in-memory H2 database instead of MySQL.
+     * The tables are created on startup and dropped with the JVM.
+     */
+    static EntityManagerFactory createInMemoryEMF() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("javax.persistence.jdbc.driver", "org.h2.Driver");
+        props.put("javax.persistence.jdbc.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        props.put("javax.persistence.jdbc.user", "sa");
+        props.put("javax.persistence.jdbc.password", "");
+        props.put("eclipselink.logging.level", "SEVERE");
+        return Persistence.createEntityManagerFactory("puTest", props);
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import DTO.PersonDTO;
+import DTO.PersonsDTO;
+import Exceptions.MissingInputException;
+import Exceptions.PersonNotFoundException;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
+import facades.PersonFacade;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PersonFacade CRUD against an in-memory H2 database seeded with size
+ * persons. The facade is a singleton, so every parameter combination runs
+ * in its own fork with a fresh database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FacadeBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private EntityManagerFactory emf;
+    private PersonFacade facade;
+    private int firstId;
+
+    @Setup
+    public void setUp() throws MissingInputException {
+        emf = Datasets.createInMemoryEMF();
+        facade = PersonFacade.getPersonFacade(emf);
+        facade.addPersons(Datasets.persons(size));
+        firstId = facade.getPersonsPage(null, 1, "id").getAll().get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        emf.close();
+    }
+
+    private int randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    @Benchmark
+    public PersonDTO getPerson() throws PersonNotFoundException {
+        return facade.getPerson(randomId());
+    }
+
+    @Benchmark
+    public PersonsDTO getPersonsPage() throws MissingInputException {
+        return facade.getPersonsPage(null, 50, "lastName");
+    }
+
+    @Benchmark
+    public PersonsDTO getAllPersons() {
+        return facade.getAllPersons();
+    }
+
+    @Benchmark
+    public PersonDTO editPerson() throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
+        PersonDTO person = facade.getPerson(randomId());
+        person.setPhone(String.valueOf(ThreadLocalRandom.current().nextInt(20000000, 99999999)));
+        return facade.editPerson(person, null);
+    }
+
+    //Deletes what it adds, so the table keeps its size
+    @Benchmark
+    public PersonDTO addAndDeletePerson() throws MissingInputException, PersonNotFoundException {
+        PersonDTO added = facade.addPerson("Bench", "Mark", "12345678", "Vej 1", 2800, "Lyngby");
+        return facade.deletePerson(added.getId());
+    }
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import DTO.PersonDTO;
+import DTO.PersonsDTO;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import json.DTOJsonProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of single and list payloads. The adapter benchmarks write
+ * the bytes the way json.DTOJsonProvider does for PersonResource, the gson
+ * benchmarks use reflection based Gson.toJson like the resources did
+ * before, and AdminResource still does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+    private static final Gson GSON = new Gson();
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private PersonDTO person;
+    private PersonsDTO persons;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setUp() {
+        persons = new PersonsDTO(Datasets.persons(size), null);
+        person = persons.getAll().get(0);
+        output = new ByteArrayOutputStream(size * 128);
+    }
+
+    @Benchmark
+    public String gsonPerson() {
+        return GSON.toJson(person);
+    }
+
+    @Benchmark
+    public String gsonPersons() {
+        return GSON.toJson(persons);
+    }
+
+    @Benchmark
+    public int adapterPerson() throws IOException {
+        output.reset();
+        JsonWriter writer = DTOJsonProvider.newWriter(output);
+        DTOJsonProvider.PERSON.write(writer, person);
+        writer.flush();
+        return output.size();
+    }
+
+    @Benchmark
+    public int adapterPersons() throws IOException {
+        output.reset();
+        JsonWriter writer = DTOJsonProvider.newWriter(output);
+        DTOJsonProvider.PERSONS.write(writer, persons);
+        writer.flush();
+        return output.size();
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
+import Exceptions.MissingInputException;
+import Exceptions.PersonNotFoundException;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
+import facades.PersonFacade;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Edit and delete of persons living at an address with many residents, like
+ * an apartment block. The cost should not grow with the number of residents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResidentsBenchmark {
+
+    private static final String STREET = "Blokken 1";
+    private static final int ZIP = 2300;
+    private static final String CITY = "København S";
+
+    @Param({"1", "1000", "10000"})
+    private int residents;
+
+    private EntityManagerFactory emf;
+    private PersonFacade facade;
+    private List<Integer> ids;
+
+    @Setup
+    public void setUp() {
+        emf = Datasets.createInMemoryEMF();
+        facade = PersonFacade.getPersonFacade(emf);
+
+        List<PersonDTO> block = new ArrayList<>();
+        for (PersonDTO person : Datasets.persons(residents)) {
+            block.add(new PersonDTO(0, person.getFirstName(), person.getLastName(), person.getPhone(), STREET, ZIP, CITY));
+        }
+        ids = new ArrayList<>();
+        facade.addPersons(block).getItems().forEach(item -> ids.add(item.getId()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        emf.close();
+    }
+
+    //Moves a resident out of the block and back in
+    @Benchmark
+    public PersonDTO moveOutAndBack() throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
+        int id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        PersonPatchDTO out = new PersonPatchDTO();
+        out.setStreet("Villavej 2");
+        facade.patchPerson(id, out, null);
+
+        PersonPatchDTO back = new PersonPatchDTO();
+        back.setStreet(STREET);
+        return facade.patchPerson(id, back, null);
+    }
+
+    //A new resident moves in and is deleted again, so the block keeps its size
+    @Benchmark
+    public PersonDTO addAndDeleteResident() throws MissingInputException, PersonNotFoundException {
+        PersonDTO added = facade.addPerson("Bench", "Mark", "12345678", STREET, ZIP, CITY);
+        return facade.deletePerson(added.getId());
+    }
+}
@@ -0,0 +1,82 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Every latency of one endpoint, kept in full so the percentiles are exact.
+ * A run of a few minutes at a few thousand requests per second fits easily
+ * in memory.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private final Map<String, Integer> outcomes = new TreeMap<>();
+
+    /**
+     * @param nanos time from the intended start of the request to the end of the response
+     * @param outcome the status code, or the exception for requests that got no response
+     */
+    synchronized void record(long nanos, String outcome, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (error) {
+            errors++;
+        }
+        outcomes.merge(outcome, 1, Integer::sum);
+    }
+
+    synchronized void addAll(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = other.latencies[i];
+        }
+        errors += other.errors;
+        other.outcomes.forEach((outcome, n) -> outcomes.merge(outcome, n, Integer::sum));
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Summary in milliseconds, in the order it is printed.
+     */
+    synchronized Map<String, Object> summary(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("perSecond", round(count / seconds));
+        summary.put("errors", errors);
+        summary.put("p50", millis(sorted, 0.5));
+        summary.put("p90", millis(sorted, 0.9));
+        summary.put("p99", millis(sorted, 0.99));
+        summary.put("p99.9", millis(sorted, 0.999));
+        summary.put("max", count == 0 ? 0 : round(sorted[count - 1] / 1e6));
+        summary.put("outcomes", new TreeMap<>(outcomes));
+        return summary;
+    }
+
+    //Nearest rank: the smallest latency that at least the given share of requests did not exceed
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return round(sorted[Math.max(rank, 1) - 1] / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,183 @@
+package loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import rest.StandaloneServer;
+import utils.Config;
+
+/**
+ * Sends requests at a fixed rate and reports the latency percentiles and
+ * errors per endpoint. Run it with "mvn -P loadtest test", settings are
+ * given as -D options:
+ *
+ * loadtest.rate requests per second (default 200), loadtest.seconds
+ * measured duration (default 30), loadtest.warmupSeconds sent first but not
+ * measured (default 10), loadtest.mix weights per operation (default
+ * get:60,page:15,search:5,post:10,put:5,delete:5), loadtest.persons seeded
+ * before the run (default 1000), loadtest.threads client threads (default
+ * 256) and loadtest.url to test a running server instead of an in-process
+ * one on H2.
+ *
+ * The load is an open model: request i is due at start + i / rate whether
+ * or not the earlier ones have been answered, like users who do not wait
+ * for each other. Latency is measured from that due time, so a request that
+ * waits for a free client thread because the server is slow counts the
+ * wait too. Measuring from the actual send would hide exactly those stalls
+ * (coordinated omission).
+ */
+public class LoadTest {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public static void main(String[] args) throws Exception {
+        int rate = Config.getInt("loadtest.rate", 200);
+        int seconds = Config.getInt("loadtest.seconds", 30);
+        int warmupSeconds = Config.getInt("loadtest.warmupSeconds", 10);
+        int threads = Config.getInt("loadtest.threads", 256);
+        String mix = Config.get("loadtest.mix", "get:60,page:15,search:5,post:10,put:5,delete:5");
+        String url = Config.get("loadtest.url", null);
+
+        //HttpURLConnection only keeps this many idle connections per host alive
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+
+        StandaloneServer server = null;
+        if (url == null) {
+            url = "http://localhost:" + Config.getInt("loadtest.port", 7790) + "/api/";
+            server = startInProcess(url);
+        }
+
+        Workload workload = new Workload(url, mix);
+        workload.seed(Config.getInt("loadtest.persons", 1000));
+        System.out.println("Sending " + rate + " requests per second to " + url + " for " + warmupSeconds + "+" + seconds + " seconds");
+
+        Map<Workload.Operation, LatencyRecorder> recorders = new EnumMap<>(Workload.Operation.class);
+        for (Workload.Operation operation : Workload.Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = 1_000_000_000L / rate;
+        long start = System.nanoTime() + 100_000_000L;
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+
+        for (long i = 0;; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Workload.Operation operation = workload.pick();
+            clients.execute(() -> {
+                Workload.Operation sent = operation;
+                String outcome;
+                boolean error;
+                try {
+                    Workload.Result result = workload.run(operation);
+                    sent = result.operation;
+                    outcome = String.valueOf(result.status);
+                    error = result.status >= 400;
+                } catch (Exception ex) {
+                    outcome = ex.getClass().getSimpleName();
+                    error = true;
+                }
+                if (due >= measureFrom) {
+                    recorders.get(sent).record(System.nanoTime() - due, outcome, error);
+                }
+            });
+        }
+
+        clients.shutdown();
+        if (!clients.awaitTermination(Config.getInt("loadtest.drainSeconds", 60), TimeUnit.SECONDS)) {
+            System.out.println("Requests still running after the drain time are left out of the report");
+        }
+
+        report(recorders, seconds, rate, mix, url);
+
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Runs the API as StandaloneServer does, on an in-memory H2 database
+     * unless javax.persistence.jdbc.url is set.
+     */
+    private static StandaloneServer startInProcess(String url) throws Exception {
+        if (System.getProperty("javax.persistence.jdbc.url") == null) {
+            System.setProperty("javax.persistence.jdbc.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+            System.setProperty("javax.persistence.jdbc.driver", "org.h2.Driver");
+            System.setProperty("javax.persistence.jdbc.user", "sa");
+            System.setProperty("javax.persistence.jdbc.password", "");
+        }
+        StandaloneServer server = new StandaloneServer(URI.create(url));
+        server.start();
+        return server;
+    }
+
+    private static void report(Map<Workload.Operation, LatencyRecorder> recorders, int seconds, int rate,
+            String mix, String url) throws Exception {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        LatencyRecorder all = new LatencyRecorder();
+
+        System.out.println();
+        System.out.println(String.format("%-30s %8s %8s %7s %9s %9s %9s %9s %9s", "endpoint (ms)", "count", "req/s",
+                "errors", "p50", "p90", "p99", "p99.9", "max"));
+        for (Map.Entry<Workload.Operation, LatencyRecorder> entry : recorders.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                Map<String, Object> summary = entry.getValue().summary(seconds);
+                endpoints.put(entry.getKey().label, summary);
+                print(entry.getKey().label, summary);
+                all.addAll(entry.getValue());
+            }
+        }
+        Map<String, Object> total = all.summary(seconds);
+        print("all", total);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("url", url);
+        result.put("rate", rate);
+        result.put("seconds", seconds);
+        result.put("mix", mix);
+        result.put("all", total);
+        result.put("endpoints", endpoints);
+
+        File file = new File(Config.get("loadtest.out", "target/loadtest-result.json"));
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            GSON.toJson(result, writer);
+        }
+        System.out.println("Result is saved to " + file.getAbsolutePath());
+    }
+
+    private static void print(String label, Map<String, Object> summary) {
+        System.out.println(String.format("%-30s %8s %8s %7s %9s %9s %9s %9s %9s", label, summary.get("count"),
+                summary.get("perSecond"), summary.get("errors"), summary.get("p50"), summary.get("p90"),
+                summary.get("p99"), summary.get("p99.9"), summary.get("max")));
+    }
+}
@@ -0,0 +1,212 @@
+package loadtest;
+
+import DTO.PersonDTO;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The requests the load test sends, and the persons they work on.
+ *
+ * GET and PUT use the seeded persons. DELETE removes a person created by an
+ * earlier POST, so the seeded persons stay and the table keeps its size;
+ * when there is none to delete yet a POST is sent instead.
+ */
+class Workload {
+
+    enum Operation {
+        GET("GET person/id/{id}"),
+        PAGE("GET person/all?limit=50"),
+        SEARCH("GET person/search?lastName="),
+        POST("POST person"),
+        PUT("PUT person/id/{id}"),
+        DELETE("DELETE person/id/{id}");
+
+        final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Gson GSON = new Gson();
+    private static final String[] FIRST_NAMES = {"Anna", "Bo", "Carl", "Dorthe", "Emil", "Frida", "Gustav", "Hanne"};
+    private static final String[] LAST_NAMES = {"Hansen", "Jensen", "Larsen", "Nielsen", "Olsen", "Pedersen", "Sørensen"};
+    private static final String[] CITIES = {"København", "Aarhus", "Odense", "Aalborg", "Esbjerg"};
+
+    private final String baseUrl;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final List<Integer> seeded = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Integer> created = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param baseUrl like http://localhost:8080/api/
+     * @param mix weights like "get:60,page:15,post:10"
+     */
+    Workload(String baseUrl, String mix) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+
+        List<Operation> ops = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split(":");
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight > 0) {
+                total += weight;
+                ops.add(Operation.valueOf(nameAndWeight[0].trim().toUpperCase()));
+                weights.add(total);
+            }
+        }
+        if (ops.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations: " + mix);
+        }
+        operations = ops.toArray(new Operation[0]);
+        cumulativeWeights = weights.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    Operation pick() {
+        int n = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (n < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * Adds the persons GET and PUT work on, through the batch endpoint.
+     */
+    void seed(int persons) throws IOException {
+        for (int done = 0; done < persons; done += 1000) {
+            List<PersonDTO> chunk = new ArrayList<>();
+            for (int i = done; i < Math.min(done + 1000, persons); i++) {
+                chunk.add(randomPerson());
+            }
+            Result result = send(null, "POST", "person/batch", GSON.toJson(chunk));
+            if (result.status != 200) {
+                throw new IOException("Seeding failed with " + result.status + ": " + result.body);
+            }
+            for (JsonElement item : new JsonParser().parse(result.body).getAsJsonObject().getAsJsonArray("items")) {
+                if (item.getAsJsonObject().has("id")) {
+                    seeded.add(item.getAsJsonObject().get("id").getAsInt());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends one request of the given kind.
+     *
+     * @return the response, with the operation that was actually sent, see the class comment for DELETE
+     */
+    Result run(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Result result;
+
+        switch (operation) {
+            case GET:
+                result = send(operation, "GET", "person/id/" + seededId(), null);
+                break;
+            case PAGE:
+                result = send(operation, "GET", "person/all?limit=50", null);
+                break;
+            case SEARCH:
+                result = send(operation, "GET", "person/search?lastName=" + LAST_NAMES[random.nextInt(LAST_NAMES.length)].substring(0, 2), null);
+                break;
+            case PUT:
+                int id = seededId();
+                PersonDTO person = randomPerson();
+                person.setId(id);
+                result = send(operation, "PUT", "person/id/" + id, GSON.toJson(person));
+                break;
+            case DELETE:
+                Integer createdId = created.poll();
+                if (createdId != null) {
+                    result = send(operation, "DELETE", "person/id/" + createdId, null);
+                    break;
+                }
+            //Nothing to delete yet, falls through to POST
+            default:
+                result = send(Operation.POST, "POST", "person", GSON.toJson(randomPerson()));
+                if (result.status == 200) {
+                    created.add(new JsonParser().parse(result.body).getAsJsonObject().get("id").getAsInt());
+                }
+        }
+        return result;
+    }
+
+    private int seededId() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+
+    private static PersonDTO randomPerson() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int city = random.nextInt(CITIES.length);
+        return new PersonDTO(0,
+                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                String.valueOf(random.nextInt(20000000, 99999999)),
+                "Vej " + random.nextInt(200),
+                1000 + city * 1000,
+                CITIES[city]);
+    }
+
+    private Result send(Operation operation, String method, String path, String json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(60000);
+
+        if (json != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+        //The body is read to the end, so the connection can be kept alive for the next request
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+        }
+        return new Result(operation, status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    static class Result {
+
+        final Operation operation;
+        final int status;
+        final String body;
+
+        Result(Operation operation, int status, String body) {
+            this.operation = operation;
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package DTO;
+
+/**
+ * Result for one person in a batch import, in the same order as the input.
+ */
+public class BatchItemDTO {
+
+    private int index;
+    private String status;
+    private Integer id;
+    private String message;
+
+    public BatchItemDTO() {
+    }
+
+    public BatchItemDTO(int index, int id) {
+        this.index = index;
+        this.status = "created";
+        this.id = id;
+    }
+
+    public BatchItemDTO(int index, String message) {
+        this.index = index;
+        this.status = "failed";
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isCreated() {
+        return "created".equals(status);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItemDTO{" + "index=" + index + ", status=" + status + ", id=" + id + ", message=" + message + '}';
+    }
+}
@@ -0,0 +1,56 @@
+package DTO;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch import: one item per input person plus throughput.
+ */
+public class BatchResultDTO {
+
+    private int created;
+    private int failed;
+    private long millis;
+    private double rowsPerSecond;
+    private List<BatchItemDTO> items;
+
+    public BatchResultDTO() {
+    }
+
+    public BatchResultDTO(List<BatchItemDTO> items, long nanos) {
+        this.items = items;
+        for (BatchItemDTO item : items) {
+            if (item.isCreated()) {
+                created++;
+            } else {
+                failed++;
+            }
+        }
+        this.millis = nanos / 1_000_000;
+        this.rowsPerSecond = nanos == 0 ? 0 : created * 1_000_000_000.0 / nanos;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public List<BatchItemDTO> getItems() {
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResultDTO{" + "created=" + created + ", failed=" + failed + ", millis=" + millis + ", rowsPerSecond=" + rowsPerSecond + '}';
+    }
+}
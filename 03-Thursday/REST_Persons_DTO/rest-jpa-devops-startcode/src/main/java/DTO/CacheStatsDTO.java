@@ -0,0 +1,38 @@
+package DTO;
+
+/**
+ * Hit and miss counts of the shared cache of one entity since startup.
+ */
+public class CacheStatsDTO {
+
+    private String entity;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+
+    public CacheStatsDTO() {
+    }
+
+    public CacheStatsDTO(String entity, long hits, long misses) {
+        this.entity = entity;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+}
@@ -12,5 +12,13 @@ public class ExceptionDTO{
   }
   private int code;
   private String message;
+
+  public int getCode() {
+      return code;
+  }
+
+  public String getMessage() {
+      return message;
+  }
 }
 
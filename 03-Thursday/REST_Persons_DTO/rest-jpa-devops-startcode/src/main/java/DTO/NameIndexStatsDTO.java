@@ -0,0 +1,44 @@
+package DTO;
+
+/**
+ * Size and query latency of the name index behind /api/person/suggest.
+ */
+public class NameIndexStatsDTO {
+
+    private int entries;
+    private int nodes;
+    private long approximateBytes;
+    private long queries;
+    private double avgQueryMicros;
+
+    public NameIndexStatsDTO() {
+    }
+
+    public NameIndexStatsDTO(int entries, int nodes, long approximateBytes, long queries, double avgQueryMicros) {
+        this.entries = entries;
+        this.nodes = nodes;
+        this.approximateBytes = approximateBytes;
+        this.queries = queries;
+        this.avgQueryMicros = avgQueryMicros;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    public long getApproximateBytes() {
+        return approximateBytes;
+    }
+
+    public long getQueries() {
+        return queries;
+    }
+
+    public double getAvgQueryMicros() {
+        return avgQueryMicros;
+    }
+}
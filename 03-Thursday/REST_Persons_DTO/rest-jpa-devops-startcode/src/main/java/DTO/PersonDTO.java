@@ -17,7 +17,7 @@ public class PersonDTO {
     private String street;
     private int zip;
     private String city;
-    
+    private int version;
 
     public PersonDTO() {
     }
@@ -30,6 +30,23 @@ public class PersonDTO {
         this.street = person.getAddress().getStreet();
         this.zip = person.getAddress().getZip();
         this.city = person.getAddress().getCity();
+        this.version = person.getVersion();
+    }
+
+    //Used by the "SELECT NEW DTO.PersonDTO(...)" queries in Person
+    public PersonDTO(int id, String firstName, String lastName, String phone, String street, int zip, String city, int version) {
+        this(id, firstName, lastName, phone, street, zip, city);
+        this.version = version;
+    }
+
+    public PersonDTO(int id, String firstName, String lastName, String phone, String street, int zip, String city) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.street = street;
+        this.zip = zip;
+        this.city = city;
     }
 
     public int getId() {
@@ -88,6 +105,15 @@ public class PersonDTO {
         this.city = city;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    //The version is left out, two DTOs are equal when they hold the same person data
     @Override
     public int hashCode() {
         int hash = 7;
@@ -129,7 +155,7 @@ public class PersonDTO {
 
     @Override
     public String toString() {
-        return "PersonDTO{" + "id=" + id + ", firstName=" + firstName + ", lastName=" + lastName + ", phone=" + phone + ", street=" + street + ", zip=" + zip + ", city=" + city + '}';
+        return "PersonDTO{" + "id=" + id + ", firstName=" + firstName + ", lastName=" + lastName + ", phone=" + phone + ", street=" + street + ", zip=" + zip + ", city=" + city + ", version=" + version + '}';
     }
     
 }
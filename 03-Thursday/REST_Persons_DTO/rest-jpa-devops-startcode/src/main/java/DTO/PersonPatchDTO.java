@@ -0,0 +1,79 @@
+package DTO;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Body of PATCH /api/person/id/{id}, a JSON merge patch (RFC 7396). Fields
+ * that are left out keep their current value, fields set to null are removed.
+ * The getters return null for both, isRemoved tells them apart.
+ */
+public class PersonPatchDTO {
+
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private String street;
+    private Integer zip;
+    private String city;
+    private final Set<String> removed = new HashSet<>();
+
+    public PersonPatchDTO() {
+    }
+
+    public boolean isRemoved(String field) {
+        return removed.contains(field);
+    }
+
+    public void remove(String field) {
+        removed.add(field);
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public void setStreet(String street) {
+        this.street = street;
+    }
+
+    public Integer getZip() {
+        return zip;
+    }
+
+    public void setZip(Integer zip) {
+        this.zip = zip;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Objects;
  */
 public class PersonsDTO {
     List<PersonDTO> all = new ArrayList();
+    String next;
     
     public PersonsDTO(List<Person> personEntities) {
         personEntities.forEach((p) ->{
@@ -18,6 +19,27 @@ public class PersonsDTO {
         });
     }
 
+    public PersonsDTO(List<PersonDTO> persons, String next) {
+        this.all = persons;
+        this.next = next;
+    }
+
+    public List<PersonDTO> getAll() {
+        return all;
+    }
+
+    /**
+     * Cursor to pass as "after" to fetch the following page, or null when
+     * this is the last page (or the result is not paginated).
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
     @Override
     public int hashCode() {
         int hash = 5;
@@ -39,6 +61,9 @@ public class PersonsDTO {
         if (!Objects.equals(this.all, other.all)) {
             return false;
         }
+        if (!Objects.equals(this.next, other.next)) {
+            return false;
+        }
         return true;
     }
     
@@ -0,0 +1,69 @@
+package DTO;
+
+/**
+ * Live connection pool state. pooled is false when the application does
+ * not use the external pool (dev/test, or DB_POOL=none).
+ */
+public class PoolStatsDTO {
+
+    private boolean pooled;
+    private int active;
+    private int idle;
+    private int waiting;
+    private int total;
+    private int maxSize;
+    private long avgAcquireMicros;
+    private long maxAcquireMicros;
+    private long timeouts;
+
+    public PoolStatsDTO() {
+    }
+
+    public PoolStatsDTO(int active, int idle, int waiting, int total, int maxSize, long avgAcquireMicros, long maxAcquireMicros, long timeouts) {
+        this.pooled = true;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.total = total;
+        this.maxSize = maxSize;
+        this.avgAcquireMicros = avgAcquireMicros;
+        this.maxAcquireMicros = maxAcquireMicros;
+        this.timeouts = timeouts;
+    }
+
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAvgAcquireMicros() {
+        return avgAcquireMicros;
+    }
+
+    public long getMaxAcquireMicros() {
+        return maxAcquireMicros;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+}
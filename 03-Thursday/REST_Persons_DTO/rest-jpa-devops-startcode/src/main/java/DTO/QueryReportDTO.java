@@ -0,0 +1,28 @@
+package DTO;
+
+import java.util.List;
+
+/**
+ * The most expensive named queries and SQL statements, by total time.
+ */
+public class QueryReportDTO {
+
+    private List<QueryStatsDTO> namedQueries;
+    private List<QueryStatsDTO> statements;
+
+    public QueryReportDTO() {
+    }
+
+    public QueryReportDTO(List<QueryStatsDTO> namedQueries, List<QueryStatsDTO> statements) {
+        this.namedQueries = namedQueries;
+        this.statements = statements;
+    }
+
+    public List<QueryStatsDTO> getNamedQueries() {
+        return namedQueries;
+    }
+
+    public List<QueryStatsDTO> getStatements() {
+        return statements;
+    }
+}
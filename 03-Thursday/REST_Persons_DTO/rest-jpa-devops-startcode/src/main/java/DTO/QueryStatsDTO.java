@@ -0,0 +1,51 @@
+package DTO;
+
+/**
+ * Executions, time and rows of one named query or SQL statement since
+ * startup.
+ */
+public class QueryStatsDTO {
+
+    private String query;
+    private long count;
+    private double totalMillis;
+    private double avgMillis;
+    private double maxMillis;
+    private long rows;
+
+    public QueryStatsDTO() {
+    }
+
+    public QueryStatsDTO(String query, long count, long totalNanos, long maxNanos, long rows) {
+        this.query = query;
+        this.count = count;
+        this.totalMillis = totalNanos / 1e6;
+        this.avgMillis = count == 0 ? 0 : totalMillis / count;
+        this.maxMillis = maxNanos / 1e6;
+        this.rows = rows;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public double getAvgMillis() {
+        return avgMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,32 @@
+package DTO;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Number of persons per zip or per city, ordered by the key.
+ */
+public class ResidentCountsDTO {
+
+    private Map<String, Long> residents;
+    private long total;
+
+    public ResidentCountsDTO() {
+    }
+
+    public ResidentCountsDTO(Map<?, Long> counts) {
+        this.residents = new TreeMap<>();
+        for (Map.Entry<?, Long> entry : counts.entrySet()) {
+            residents.put(String.valueOf(entry.getKey()), entry.getValue());
+            total += entry.getValue();
+        }
+    }
+
+    public Map<String, Long> getResidents() {
+        return residents;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
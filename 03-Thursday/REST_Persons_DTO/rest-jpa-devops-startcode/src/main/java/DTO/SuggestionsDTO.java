@@ -0,0 +1,29 @@
+package DTO;
+
+import java.util.List;
+
+/**
+ * Ids of the persons matching a type-ahead prefix, and how long the lookup
+ * took.
+ */
+public class SuggestionsDTO {
+
+    private List<Integer> ids;
+    private double micros;
+
+    public SuggestionsDTO() {
+    }
+
+    public SuggestionsDTO(List<Integer> ids, double micros) {
+        this.ids = ids;
+        this.micros = micros;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public double getMicros() {
+        return micros;
+    }
+}
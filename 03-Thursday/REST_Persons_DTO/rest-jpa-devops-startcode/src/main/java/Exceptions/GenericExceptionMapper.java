@@ -1,8 +1,6 @@
 package Exceptions;
 
 import DTO.ExceptionDTO;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.WebApplicationException;
@@ -18,15 +16,13 @@ import javax.ws.rs.ext.Provider;
 @Provider
 public class GenericExceptionMapper implements ExceptionMapper<Throwable> {
 
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
     @Override
     public Response toResponse(Throwable ex) {
         Response.StatusType type = getStatusType(ex);
         Logger.getLogger(GenericExceptionMapper.class.getName()).log(Level.SEVERE, null, ex);
         ExceptionDTO err = new ExceptionDTO(type.getStatusCode(), "Internal Server Problem. We are sorry for the inconvenience");
         return Response.status(type.getStatusCode())
-                .entity(GSON.toJson(err))
+                .entity(err)
                 .type(MediaType.APPLICATION_JSON).
                 build();
     }
@@ -1,8 +1,6 @@
 package Exceptions;
 
 import DTO.ExceptionDTO;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.core.MediaType;
@@ -17,12 +15,10 @@ import javax.ws.rs.ext.Provider;
 @Provider
 public class MissingInputExceptionMapper implements ExceptionMapper<MissingInputException>{
 
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
     @Override
     public Response toResponse(MissingInputException ex) {
         Logger.getLogger(MissingInputException.class.getName()).log(Level.SEVERE, null, ex);
         ExceptionDTO err = new ExceptionDTO(400, ex.getMessage());
-        return Response.status(400).entity(GSON.toJson(err)).type(MediaType.APPLICATION_JSON).build();
+        return Response.status(400).entity(err).type(MediaType.APPLICATION_JSON).build();
     }
 }
\ No newline at end of file
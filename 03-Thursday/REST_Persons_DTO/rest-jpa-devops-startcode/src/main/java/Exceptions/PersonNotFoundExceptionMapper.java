@@ -1,8 +1,6 @@
 package Exceptions;
 
 import DTO.ExceptionDTO;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.core.MediaType;
@@ -17,12 +15,10 @@ import javax.ws.rs.ext.Provider;
 @Provider
 public class PersonNotFoundExceptionMapper implements ExceptionMapper<PersonNotFoundException> {
 
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
     @Override
     public Response toResponse(PersonNotFoundException ex) {
         Logger.getLogger(PersonNotFoundExceptionMapper.class.getName()).log(Level.SEVERE, null, ex);
         ExceptionDTO err = new ExceptionDTO(404, ex.getMessage());
-        return Response.status(404).entity(GSON.toJson(err)).type(MediaType.APPLICATION_JSON).build();
+        return Response.status(404).entity(err).type(MediaType.APPLICATION_JSON).build();
     }
 }
@@ -0,0 +1,10 @@
+package Exceptions;
+
+/**
+ * The version in If-Match is not the current version of the person.
+ */
+public class PreconditionFailedException extends Exception{
+    public PreconditionFailedException(String message){
+        super(message);
+    }
+}
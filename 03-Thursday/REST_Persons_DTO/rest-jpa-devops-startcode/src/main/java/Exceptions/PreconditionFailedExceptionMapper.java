@@ -0,0 +1,24 @@
+package Exceptions;
+
+import DTO.ExceptionDTO;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ *
+ * @author Nikolaj Larsen
+ */
+@Provider
+public class PreconditionFailedExceptionMapper implements ExceptionMapper<PreconditionFailedException> {
+
+    @Override
+    public Response toResponse(PreconditionFailedException ex) {
+        Logger.getLogger(PreconditionFailedExceptionMapper.class.getName()).log(Level.SEVERE, null, ex);
+        ExceptionDTO err = new ExceptionDTO(412, ex.getMessage());
+        return Response.status(412).entity(err).type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -0,0 +1,25 @@
+package Exceptions;
+
+import DTO.ExceptionDTO;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * A queue in front of the database is full, so the client should back off
+ * and retry.
+ */
+@Provider
+public class RejectedExecutionExceptionMapper implements ExceptionMapper<RejectedExecutionException> {
+
+    @Override
+    public Response toResponse(RejectedExecutionException ex) {
+        Logger.getLogger(RejectedExecutionExceptionMapper.class.getName()).log(Level.WARNING, ex.getMessage());
+        ExceptionDTO err = new ExceptionDTO(503, ex.getMessage());
+        return Response.status(503).entity(err).type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -0,0 +1,10 @@
+package Exceptions;
+
+/**
+ * Another update of the same person was committed while this one ran.
+ */
+public class VersionConflictException extends Exception{
+    public VersionConflictException(String message){
+        super(message);
+    }
+}
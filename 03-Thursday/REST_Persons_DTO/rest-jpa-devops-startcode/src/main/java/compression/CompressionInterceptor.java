@@ -0,0 +1,251 @@
+package compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import utils.Config;
+
+/**
+ * Compresses response bodies with gzip or deflate, depending on what the
+ * client lists in Accept-Encoding.
+ *
+ * The first compression.minSize bytes (default 1024) are held back. Bodies
+ * that end before that are sent as they are, because compressing them costs
+ * more than it saves. Bodies that already have a Content-Encoding, are not
+ * text-like, or are marked Cache-Control: no-transform are left alone. The
+ * Deflater level is set by compression.level (default 6).
+ *
+ * An encoded body is a different byte stream from the plain one, so a strong
+ * ETag gets the encoding appended, like "3-gzip". identityValue undoes that
+ * when a tag comes back in If-None-Match or If-Match.
+ */
+@Provider
+public class CompressionInterceptor implements WriterInterceptor {
+
+    private static final int MIN_SIZE = Config.getInt("compression.minSize", 1024);
+    private static final int LEVEL = Config.getInt("compression.level", 6);
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) || !isCompressible(context.getMediaType())
+                || String.valueOf(headers.getFirst(HttpHeaders.CACHE_CONTROL)).contains("no-transform")) {
+            context.proceed();
+            return;
+        }
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        ThresholdOutputStream output = new ThresholdOutputStream(context.getOutputStream(), headers, encoding);
+        context.setOutputStream(output);
+        try {
+            context.proceed();
+            output.finish();
+        } finally {
+            //The Deflater holds native memory until it is ended
+            output.end();
+        }
+    }
+
+    /**
+     * @return the value of an ETag without the encoding added to it for an
+     * encoded body
+     */
+    public static String identityValue(String tagValue) {
+        for (String encoding : new String[]{"gzip", "deflate"}) {
+            if (tagValue.endsWith("-" + encoding)) {
+                return tagValue.substring(0, tagValue.length() - encoding.length() - 1);
+            }
+        }
+        return tagValue;
+    }
+
+    //Weak tags only promise the same meaning, so they stay as they are
+    private static Object encodedTag(Object tag, String encoding) {
+        EntityTag entityTag = tag instanceof EntityTag ? (EntityTag) tag : EntityTag.valueOf(String.valueOf(tag));
+        if (entityTag.isWeak()) {
+            return entityTag;
+        }
+        return new EntityTag(entityTag.getValue() + "-" + encoding);
+    }
+
+    /**
+     * Picks gzip or deflate from an Accept-Encoding header, honouring q
+     * values and "*". Ties go to gzip.
+     *
+     * @return the encoding to use, or null if the body must not be encoded
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                }
+            }
+
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip, q);
+            } else if (coding.equals("deflate")) {
+                deflate = Math.max(deflate, q);
+            } else if (coding.equals("*")) {
+                any = Math.max(any, q);
+            }
+        }
+
+        //An encoding that is not listed gets the q value of "*"
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+
+        if (gzip > 0 && gzip >= deflate) {
+            return "gzip";
+        } else if (deflate > 0) {
+            return "deflate";
+        }
+        return null;
+    }
+
+    private static boolean isCompressible(MediaType type) {
+        if (type == null) {
+            return false;
+        }
+        String subtype = type.getSubtype().toLowerCase();
+        return type.getType().equalsIgnoreCase("text")
+                || subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("x-ndjson")
+                || subtype.equals("xml") || subtype.endsWith("+xml") || subtype.equals("javascript");
+    }
+
+    /*
+      Buffers the start of the body. Once it grows past MIN_SIZE the
+      Content-Encoding header is set, before anything reaches the client,
+      and the rest is compressed on the fly.
+     */
+    private static class ThresholdOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final MultivaluedMap<String, Object> headers;
+        private final String encoding;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(MIN_SIZE);
+        private Deflater deflater;
+        private DeflaterOutputStream compressed;
+
+        ThresholdOutputStream(OutputStream out, MultivaluedMap<String, Object> headers, String encoding) {
+            this.out = out;
+            this.headers = headers;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (compressed != null) {
+                compressed.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() >= MIN_SIZE) {
+                startCompression();
+            }
+        }
+
+        private void startCompression() throws IOException {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            Object tag = headers.getFirst(HttpHeaders.ETAG);
+            if (tag != null) {
+                headers.putSingle(HttpHeaders.ETAG, encodedTag(tag, encoding));
+            }
+
+            deflater = encoding.equals("gzip") ? new Deflater(LEVEL, true) : new Deflater(LEVEL);
+            compressed = encoding.equals("gzip") ? new LevelGZIPOutputStream(out, deflater) : new DeflaterOutputStream(out, deflater);
+            buffer.writeTo(compressed);
+            buffer = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            //While buffering nothing may be sent, the headers are not decided yet
+            if (compressed != null) {
+                compressed.flush();
+            }
+        }
+
+        void finish() throws IOException {
+            if (compressed != null) {
+                compressed.finish();
+                compressed = null;
+            } else if (buffer != null) {
+                buffer.writeTo(out);
+                buffer = null;
+            }
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                end();
+            }
+            out.close();
+        }
+    }
+
+    //GZIPOutputStream always uses the default level, this lets us pick it
+    private static class LevelGZIPOutputStream extends GZIPOutputStream {
+
+        LevelGZIPOutputStream(OutputStream out, Deflater deflater) throws IOException {
+            super(out);
+            def.end();
+            def = deflater;
+        }
+    }
+}
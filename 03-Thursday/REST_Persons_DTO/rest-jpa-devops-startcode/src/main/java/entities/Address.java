@@ -1,38 +1,66 @@
 package entities;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.HashSet;
+import java.util.Set;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+import javax.persistence.UniqueConstraint;
+import org.eclipse.persistence.annotations.Cache;
+import org.eclipse.persistence.annotations.CacheType;
+import org.eclipse.persistence.config.CacheIsolationType;
+import org.eclipse.persistence.indirection.IndirectCollection;
 
 /**
  *
  * @author Nikolaj Larsen
  */
 @Entity
+@Cache(type = CacheType.SOFT_WEAK, size = 10000, expiry = 600000, isolation = CacheIsolationType.SHARED)
+//The unique constraint is also the index behind Address.getAddress, the others serve PersonFacade.searchPersons
+@Table(uniqueConstraints = @UniqueConstraint(name = "UNQ_ADDRESS_STREET_ZIP_CITY", columnNames = {"STREET", "ZIP", "CITY"}),
+        indexes = {
+            @Index(name = "IDX_ADDRESS_ZIP", columnList = "ZIP"),
+            @Index(name = "IDX_ADDRESS_CITY", columnList = "CITY")
+        })
 @NamedQueries({
     @NamedQuery(name = "Address.deleteAllRows", query = "DELETE from Address"),
-    @NamedQuery(name = "Address.getAddress", query = "SELECT a From Address a WHERE a.street = :street AND a.zip = :zip AND a.city = :city")})
+    @NamedQuery(name = "Address.getAddress", query = "SELECT a From Address a WHERE a.street = :street AND a.zip = :zip AND a.city = :city"),
+    @NamedQuery(name = "Address.getAddressId", query = "SELECT a.id From Address a WHERE a.street = :street AND a.zip = :zip AND a.city = :city"),
+    //Candidates for many addresses at once, the caller picks the exact matches
+    @NamedQuery(name = "Address.getAddresses", query = "SELECT a From Address a WHERE a.street IN :streets AND a.zip IN :zips"),
+    //Seed and reconcile the resident counts in facades.ResidentCounts
+    @NamedQuery(name = "Address.countByZip", query = "SELECT a.zip, COUNT(p) FROM Person p JOIN p.address a GROUP BY a.zip"),
+    @NamedQuery(name = "Address.countByCity", query = "SELECT a.city, COUNT(p) FROM Person p JOIN p.address a GROUP BY a.city"),
+    //Addresses without residents, deleted in batches by facades.AddressSweeper
+    @NamedQuery(name = "Address.orphans", query = "SELECT a FROM Address a WHERE NOT EXISTS (SELECT p.id FROM Person p WHERE p.address = a) ORDER BY a.id"),
+    //EclipseLink turns a subquery in a bulk delete into a self join MySQL rejects, so the check is a query of its own
+    @NamedQuery(name = "Address.withResidents", query = "SELECT DISTINCT p.address.id FROM Person p WHERE p.address.id IN :ids"),
+    @NamedQuery(name = "Address.deleteByIds", query = "DELETE FROM Address a WHERE a.id IN :ids")})
 public class Address implements Serializable {
 
     private static final long serialVersionUID = 1L;
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //Same id generation as Person, see the comment there
+    @TableGenerator(name = "ADDRESS_SEQ", table = "ID_GEN", pkColumnName = "GEN_NAME", valueColumnName = "GEN_VALUE", pkColumnValue = "ADDRESS_SEQ", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ADDRESS_SEQ")
     private Integer id;
     private String street;
     private int zip;
     private String city;
 
+    //Only kept up to date in memory when it has been loaded, so refresh the address before reading it
     @OneToMany(mappedBy = "address", cascade = {CascadeType.MERGE, CascadeType.PERSIST})
-    private List<Person> persons;
+    private Set<Person> persons = new HashSet<>();
 
     public Address() {
     }
@@ -41,27 +69,41 @@ public class Address implements Serializable {
         this.street = street;
         this.zip = zip;
         this.city = city;
-        persons = new ArrayList<>();
     }
 
-    public List<Person> getPersons() {
+    public Set<Person> getPersons() {
         return persons;
     }
 
-    public void setPerson(List<Person> persons) {
+    public void setPerson(Set<Person> persons) {
         this.persons = persons;
     }
     
     public void addPerson(Person person){
-        persons.add(person);
-        
         if(person != null){
             person.setAddress(this);
         }
     }
     
+    /**
+     * Like addPerson, the residents are only updated in memory when they have
+     * been loaded, so neither costs more for an address with many residents.
+     */
     public void removePerson(Person person){
-        persons.remove(person);
+        if (isLoaded()) {
+            persons.remove(person);
+        }
+    }
+
+    //Called by Person.setAddress
+    void residentAdded(Person person) {
+        if (isLoaded()) {
+            persons.add(person);
+        }
+    }
+
+    private boolean isLoaded() {
+        return !(persons instanceof IndirectCollection) || ((IndirectCollection) persons).isInstantiated();
     }
 
     public Integer getId() {
@@ -96,10 +138,10 @@ public class Address implements Serializable {
         this.city = city;
     }
 
+    //Equal when it is the same row. An address that is not persisted yet is only equal to itself
     @Override
     public int hashCode() {
-        int hash = 5;
-        return hash;
+        return id == null ? System.identityHashCode(this) : id;
     }
 
     @Override
@@ -114,26 +156,14 @@ public class Address implements Serializable {
             return false;
         }
         final Address other = (Address) obj;
-        if (this.zip != other.zip) {
-            return false;
-        }
-        if (!Objects.equals(this.street, other.street)) {
-            return false;
-        }
-        if (!Objects.equals(this.city, other.city)) {
-            return false;
-        }
-        if (!Objects.equals(this.persons, other.persons)) {
-            return false;
-        }
-        return true;
+        return id != null && id.equals(other.id);
     }
 
 
 
     @Override
     public String toString() {
-        return "Address{" + "id=" + id + ", street=" + street + ", zip=" + zip + ", city=" + city + ", persons=" + persons + '}';
+        return "Address{" + "id=" + id + ", street=" + street + ", zip=" + zip + ", city=" + city + '}';
     }
 
 
@@ -2,29 +2,48 @@ package entities;
 
 import java.io.Serializable;
 import java.util.Date;
-import java.util.Objects;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
+import org.eclipse.persistence.annotations.Cache;
+import org.eclipse.persistence.annotations.CacheType;
+import org.eclipse.persistence.config.CacheIsolationType;
 
 @Entity
+//Shared (second level) cache, size, ttl and isolation can be changed in utils.EclipseLinkCustomizer
+@Cache(type = CacheType.SOFT_WEAK, size = 10000, expiry = 600000, isolation = CacheIsolationType.SHARED)
+//Used by the prefix search in PersonFacade.searchPersons
+@Table(indexes = {
+    @Index(name = "IDX_PERSON_LASTNAME", columnList = "LASTNAME"),
+    @Index(name = "IDX_PERSON_PHONE", columnList = "PHONE")
+})
 @NamedQueries({
     @NamedQuery(name = "Person.deleteAllRows", query = "DELETE from Person"),
     @NamedQuery(name = "Persons.GetAll", query = "SELECT p FROM Person p"),
-    @NamedQuery(name = "Person.getByAddress", query = "SELECT p FROM Person p WHERE p.address.id = :id")
+    @NamedQuery(name = "Person.getByAddress", query = "SELECT p FROM Person p WHERE p.address.id = :id"),
+    //Any resident of the address other than the given person, uses the index behind the foreign key
+    @NamedQuery(name = "Person.otherResident", query = "SELECT p.id FROM Person p WHERE p.address.id = :address AND p.id <> :id"),
+    //Read query projecting straight into the DTO, without managed entities
+    @NamedQuery(name = "Persons.GetAllDTO", query = "SELECT NEW DTO.PersonDTO(p.id, p.firstName, p.lastName, p.phone, a.street, a.zip, a.city, p.version) FROM Person p JOIN p.address a ORDER BY p.id")
 })
 public class Person implements Serializable {
 
     private static final long serialVersionUID = 1L;
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //Ids come from blocks reserved in ID_GEN, so inserts need no round trip for the key and can be batched
+    @TableGenerator(name = "PERSON_SEQ", table = "ID_GEN", pkColumnName = "GEN_NAME", valueColumnName = "GEN_VALUE", pkColumnValue = "PERSON_SEQ", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "PERSON_SEQ")
     private int id;
     private String firstName;
     private String lastName;
@@ -33,6 +52,9 @@ public class Person implements Serializable {
     private Date created;
     @Temporal(TemporalType.DATE)
     private Date lastEdited;
+    //Checked and increased by every update, so concurrent edits fail instead of overwriting each other
+    @Version
+    private int version;
 
     @ManyToOne(cascade = CascadeType.PERSIST)
     private Address address;
@@ -55,7 +77,7 @@ public class Person implements Serializable {
     public void setAddress(Address address) {
         this.address = address;
         if (address != null) {
-            address.getPersons().add(this);
+            address.residentAdded(this);
         }
     }
 
@@ -99,6 +121,10 @@ public class Person implements Serializable {
         this.created = created;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public Date getLastEdited() {
         return lastEdited;
     }
@@ -107,10 +133,14 @@ public class Person implements Serializable {
         this.lastEdited = lastEdited;
     }
 
+    /*
+      Equal when it is the same row. A person that is not persisted yet is
+      only equal to itself, and its hash changes when the id is given out on
+      persist, so persist it before putting it in a hash based collection.
+     */
     @Override
     public int hashCode() {
-        int hash = 5;
-        return hash;
+        return id == 0 ? System.identityHashCode(this) : id;
     }
 
     @Override
@@ -125,19 +155,7 @@ public class Person implements Serializable {
             return false;
         }
         final Person other = (Person) obj;
-        if (!Objects.equals(this.firstName, other.firstName)) {
-            return false;
-        }
-        if (!Objects.equals(this.lastName, other.lastName)) {
-            return false;
-        }
-        if (!Objects.equals(this.phone, other.phone)) {
-            return false;
-        }
-        if (!Objects.equals(this.address, other.address)) {
-            return false;
-        }
-        return true;
+        return id != 0 && id == other.id;
     }
 
 }
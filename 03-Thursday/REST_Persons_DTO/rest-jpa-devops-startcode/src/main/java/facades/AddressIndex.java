@@ -0,0 +1,224 @@
+package facades;
+
+import entities.Address;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
+
+/**
+ * In-process index from (street, zip, city) to the id of the matching Address
+ * row, so the write path can reuse an address without querying for it.
+ *
+ * Misses are resolved under one of a fixed number of lock stripes, so two
+ * threads asking for the same new address create it only once. Between nodes
+ * the unique constraint on Address does the same job: the loser of the insert
+ * race reads the winner's row instead. The stripes are ReentrantLocks rather
+ * than monitors, because a virtual thread blocked on JDBC inside synchronized
+ * keeps its carrier thread.
+ *
+ * At most maxEntries addresses are kept. When a new one would go past that,
+ * another is dropped with the CLOCK algorithm: a hand goes round the
+ * entries, clears the used flag a lookup set and drops the first entry that
+ * was not used since the hand last passed it. That approximates LRU without
+ * taking a lock on a hit, and addresses seen only once go first.
+ */
+class AddressIndex {
+
+    private static final int STRIPES = 32;
+
+    private final EntityManagerFactory emf;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> ids = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    //Guarded by this
+    private Iterator<Map.Entry<Key, Entry>> hand;
+
+    AddressIndex(EntityManagerFactory emf, int maxEntries) {
+        this.emf = emf;
+        this.maxEntries = maxEntries;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return the id of the address, which is inserted if it does not exist yet
+     */
+    int resolve(String street, int zip, String city) {
+        Key key = new Key(street, zip, city);
+        Integer id = get(key);
+
+        if (id != null) {
+            return id;
+        }
+
+        ReentrantLock lock = locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+        lock.lock();
+        try {
+            id = get(key);
+            if (id == null) {
+                id = findOrCreate(key);
+                put(key, id);
+            }
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the id of the address if it is indexed, without asking the database
+     */
+    Integer get(Key key) {
+        Entry entry = ids.get(key);
+        if (entry == null) {
+            return null;
+        }
+        //Only written when it changes, so hot entries are not written on every hit
+        if (!entry.used) {
+            entry.used = true;
+        }
+        return entry.id;
+    }
+
+    /**
+     * Indexes an address the caller has committed, dropping another one
+     * when the index is full.
+     */
+    void put(Key key, int id) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (ids.put(key, new Entry(id)) == null && ids.size() > maxEntries) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Must be called when an address row is deleted.
+     */
+    void evict(String street, int zip, String city) {
+        ids.remove(new Key(street, zip, city));
+    }
+
+    //Moves the clock hand until the index is back at maxEntries, never dropping the entry just added
+    private synchronized void evict(Key added) {
+        while (ids.size() > maxEntries) {
+            if (hand == null || !hand.hasNext()) {
+                hand = ids.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<Key, Entry> next = hand.next();
+            if (next.getValue().used) {
+                next.getValue().used = false;
+            } else if (!next.getKey().equals(added)) {
+                hand.remove();
+            }
+        }
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    private int findOrCreate(Key key) {
+        Integer id = find(key);
+        if (id != null) {
+            return id;
+        }
+
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            Address address = new Address(key.street, key.zip, key.city);
+            em.getTransaction().begin();
+            em.persist(address);
+            em.getTransaction().commit();
+            return address.getId();
+        } catch (PersistenceException ex) {
+            //Another node inserted the same address first and the unique constraint rejected ours
+            id = find(key);
+            if (id == null) {
+                throw ex;
+            }
+            return id;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    private Integer find(Key key) {
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            TypedQuery<Integer> query = em.createNamedQuery("Address.getAddressId", Integer.class);
+            query.setParameter("street", key.street);
+            query.setParameter("zip", key.zip);
+            query.setParameter("city", key.city);
+            List<Integer> result = query.getResultList();
+
+            return result.isEmpty() ? null : result.get(0);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static class Entry {
+
+        private final int id;
+        //Set by a lookup, cleared by the clock hand
+        private volatile boolean used;
+
+        Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    static class Key {
+
+        final String street;
+        final int zip;
+        final String city;
+
+        Key(String street, int zip, String city) {
+            this.street = street;
+            this.zip = zip;
+            this.city = city;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 59 * hash + Objects.hashCode(this.street);
+            hash = 59 * hash + this.zip;
+            hash = 59 * hash + Objects.hashCode(this.city);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.zip == other.zip
+                    && Objects.equals(this.street, other.street)
+                    && Objects.equals(this.city, other.city);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package facades;
+
+import entities.Address;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Deletes addresses nobody lives at any more, in the background, so deleting
+ * or moving a person does not have to check for it.
+ *
+ * An address is only deleted when it was already without residents on the
+ * previous sweep, because the write path creates an address in a transaction
+ * of its own before the person is saved with it. The residents are checked
+ * again right before the delete, and should one move in after that, the
+ * foreign key fails the batch, which is then retried on a later sweep.
+ */
+class AddressSweeper {
+
+    private static final Logger LOGGER = Logger.getLogger(AddressSweeper.class.getName());
+
+    private final EntityManagerFactory emf;
+    private final AddressIndex addressIndex;
+    private final int batchSize;
+    private Set<Integer> marked = new HashSet<>();
+
+    AddressSweeper(EntityManagerFactory emf, AddressIndex addressIndex, int batchSize) {
+        this.emf = emf;
+        this.addressIndex = addressIndex;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Deletes at most batchSize of the addresses marked by the previous sweep
+     * and marks the next ones.
+     *
+     * @return the number of addresses deleted
+     */
+    synchronized int sweep() {
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            List<Address> orphans = em.createNamedQuery("Address.orphans", Address.class)
+                    .setMaxResults(batchSize)
+                    .getResultList();
+
+            List<Integer> ids = new ArrayList<>();
+            Set<Integer> next = new HashSet<>();
+            for (Address address : orphans) {
+                if (marked.contains(address.getId())) {
+                    ids.add(address.getId());
+                } else {
+                    next.add(address.getId());
+                }
+            }
+            marked = next;
+
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            em.getTransaction().begin();
+            ids.removeAll(em.createNamedQuery("Address.withResidents", Integer.class)
+                    .setParameter("ids", ids)
+                    .getResultList());
+            int deleted = ids.isEmpty() ? 0 : em.createNamedQuery("Address.deleteByIds")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            em.getTransaction().commit();
+
+            //A bulk delete bypasses the shared cache
+            for (Address address : orphans) {
+                if (ids.contains(address.getId())) {
+                    emf.getCache().evict(Address.class, address.getId());
+                    addressIndex.evict(address.getStreet(), address.getZip(), address.getCity());
+                }
+            }
+
+            LOGGER.info("Deleted " + deleted + " addresses without residents");
+            return deleted;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+}
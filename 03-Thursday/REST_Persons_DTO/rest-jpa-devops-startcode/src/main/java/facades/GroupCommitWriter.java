@@ -0,0 +1,141 @@
+package facades;
+
+import DTO.PersonDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects new persons from concurrent callers and inserts them with one
+ * transaction per group, so a burst of inserts pays for one commit instead of
+ * one each.
+ *
+ * A single committer thread takes what is queued and commits when it has
+ * maxItems, or when maxDelayMs has passed since the first of them arrived.
+ * When the queue is full, new writes are rejected instead of waiting. If the
+ * group fails, its persons are inserted one by one, so a bad row only fails
+ * its own caller.
+ */
+class GroupCommitWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitWriter.class.getName());
+
+    private final PersonFacade facade;
+    private final int maxItems;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Write> queue;
+
+    GroupCommitWriter(PersonFacade facade, int maxItems, long maxDelayMs, int capacity) {
+        this.facade = facade;
+        this.maxItems = Math.max(1, maxItems);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Thread committer = new Thread(this::run, "group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * @return completed with the saved person, or with the exception that
+     * made saving it fail
+     * @throws RejectedExecutionException if the queue is full
+     */
+    CompletableFuture<PersonDTO> submit(PersonDTO person) {
+        Write write = new Write(person);
+        if (!queue.offer(write)) {
+            throw new RejectedExecutionException("Too many writes are waiting for the database");
+        }
+        return write.result;
+    }
+
+    /**
+     * Like submit, but waits for the person to be saved.
+     */
+    PersonDTO add(PersonDTO person) {
+        try {
+            return submit(person).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private void run() {
+        List<Write> group = new ArrayList<>(maxItems);
+
+        while (true) {
+            try {
+                group.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < maxItems) {
+                    queue.drainTo(group, maxItems - group.size());
+                    long wait = deadline - System.nanoTime();
+                    if (group.size() == maxItems || wait <= 0) {
+                        break;
+                    }
+                    Write next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException | Error ex) {
+                LOGGER.log(Level.SEVERE, "Group commit failed", ex);
+                group.forEach(write -> write.result.completeExceptionally(ex));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Write> group) {
+        List<PersonDTO> persons = new ArrayList<>(group.size());
+        for (Write write : group) {
+            persons.add(write.person);
+        }
+
+        List<PersonDTO> added;
+        try {
+            added = facade.insertPersons(persons);
+        } catch (RuntimeException ex) {
+            //One bad row rolls back the whole group, so each is tried on its own
+            for (Write write : group) {
+                PersonDTO p = write.person;
+                try {
+                    write.result.complete(facade.insertPerson(p.getFirstName(), p.getLastName(), p.getPhone(),
+                            p.getStreet(), p.getZip(), p.getCity()));
+                } catch (RuntimeException itemEx) {
+                    write.result.completeExceptionally(itemEx);
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).result.complete(added.get(i));
+        }
+    }
+
+    private static class Write {
+
+        private final PersonDTO person;
+        private final CompletableFuture<PersonDTO> result = new CompletableFuture<>();
+
+        Write(PersonDTO person) {
+            this.person = person;
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package facades;
 
+import DTO.BatchResultDTO;
 import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
 import DTO.PersonsDTO;
+import DTO.ResidentCountsDTO;
+import DTO.SuggestionsDTO;
 import Exceptions.MissingInputException;
 import Exceptions.PersonNotFoundException;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  *
@@ -11,9 +19,17 @@ import Exceptions.PersonNotFoundException;
  */
 public interface IPersonFacade {
   public PersonDTO addPerson(String fName, String lName, String phone, String street, int zip, String city) throws MissingInputException;  
+  public BatchResultDTO addPersons(List<PersonDTO> persons);  
   public PersonDTO deletePerson(int id) throws PersonNotFoundException;  
   public PersonDTO getPerson(int id) throws PersonNotFoundException;  
   public PersonsDTO getAllPersons();  
-  public PersonDTO editPerson(PersonDTO p) throws PersonNotFoundException, MissingInputException;  
+  public PersonsDTO getPersonsPage(String after, int limit, String sort) throws MissingInputException;  
+  public PersonsDTO searchPersons(String lastName, String city, Integer zip, String phone, String after, int limit) throws MissingInputException;  
+  public SuggestionsDTO suggest(String prefix, int limit) throws MissingInputException;  
+  public ResidentCountsDTO getResidentsByZip();  
+  public ResidentCountsDTO getResidentsByCity();  
+  public void forEachPerson(Consumer<PersonDTO> action);  
+  public PersonDTO editPerson(PersonDTO p, Integer expectedVersion) throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException;  
+  public PersonDTO patchPerson(int id, PersonPatchDTO patch, Integer expectedVersion) throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException;  
 
 }
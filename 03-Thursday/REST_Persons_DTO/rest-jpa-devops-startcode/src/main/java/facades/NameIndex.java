@@ -0,0 +1,328 @@
+package facades;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process prefix trie over first and last names, used for type-ahead.
+ * Every name is stored lower case, with the ids of the persons that have it.
+ *
+ * To keep it small, a node holds its child labels in a sorted char[] next to
+ * a parallel array of children, not in a map. Nodes without children or ids
+ * share one empty array. The ids of a name are kept sorted in an array that
+ * grows by half when full, so adding one is amortized O(1) when ids arrive in
+ * increasing order, and finding one for removal is a binary search. Lookups
+ * take the read lock and writes take the write lock, so many suggestions can
+ * run at once.
+ */
+class NameIndex {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+
+    private final Node root = new Node();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private int nodes = 1;
+    private int entries;
+
+    void add(int id, String firstName, String lastName) {
+        add(id, firstName, lastName, false);
+    }
+
+    /**
+     * Like add, for building the index from a scan in id order: the id is
+     * appended without looking for it first. An id that is not higher than
+     * the ones already at a name falls back to the normal add.
+     */
+    void append(int id, String firstName, String lastName) {
+        add(id, firstName, lastName, true);
+    }
+
+    /**
+     * Gives the room left over from growing the id arrays back, once a bulk
+     * build is done.
+     */
+    void trimToSize() {
+        lock.writeLock().lock();
+        try {
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                node.trimIds();
+                Collections.addAll(queue, node.children);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(int id, String firstName, String lastName, boolean append) {
+        String first = normalize(firstName);
+        String last = normalize(lastName);
+
+        lock.writeLock().lock();
+        try {
+            insert(first, id, append);
+            if (!last.equals(first)) {
+                insert(last, id, append);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id, String firstName, String lastName) {
+        String first = normalize(firstName);
+        String last = normalize(lastName);
+
+        lock.writeLock().lock();
+        try {
+            delete(root, first, 0, id);
+            if (!last.equals(first)) {
+                delete(root, last, 0, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of persons with a first or last name starting with the prefix.
+     * Shorter names come first, as they are the closest completions.
+     */
+    List<Integer> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        String key = normalize(prefix);
+        Set<Integer> ids = new LinkedHashSet<>();
+
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node != null && !key.isEmpty()) {
+                //Breadth first, so the ids are ordered by name length
+                ArrayDeque<Node> queue = new ArrayDeque<>();
+                queue.add(node);
+                while (!queue.isEmpty() && ids.size() < limit) {
+                    Node next = queue.poll();
+                    for (int i = 0; i < next.size && ids.size() < limit; i++) {
+                        ids.add(next.ids[i]);
+                    }
+                    Collections.addAll(queue, next.children);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        queries.increment();
+        queryNanos.add(System.nanoTime() - start);
+        return new ArrayList<>(ids);
+    }
+
+    int getNodes() {
+        return nodes;
+    }
+
+    //Number of (name, id) pairs
+    int getEntries() {
+        return entries;
+    }
+
+    long getQueries() {
+        return queries.sum();
+    }
+
+    double getAverageQueryMicros() {
+        long count = queries.sum();
+        return count == 0 ? 0 : queryNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * Approximate heap use in bytes, assuming compressed references: 16 bytes
+     * per array header, 32 per node, 2 per label, 4 per child and per id slot,
+     * used or not, rounded up to 8 bytes per object.
+     */
+    long getApproximateBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                bytes += 32;
+                if (node.labels.length > 0) {
+                    bytes += align(16 + 2 * node.labels.length) + align(16 + 4 * node.children.length);
+                }
+                if (node.ids.length > 0) {
+                    bytes += align(16 + 4 * node.ids.length);
+                }
+                Collections.addAll(queue, node.children);
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String name, int id, boolean append) {
+        if (name.isEmpty()) {
+            return;
+        }
+
+        Node node = root;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            int index = Arrays.binarySearch(node.labels, c);
+            if (index < 0) {
+                index = -index - 1;
+                node.insertChild(index, c, new Node());
+                nodes++;
+            }
+            node = node.children[index];
+        }
+
+        if (append ? node.appendId(id) : node.addId(id)) {
+            entries++;
+        }
+    }
+
+    //Removes the id and prunes the nodes that no longer lead to any id
+    private void delete(Node node, String name, int depth, int id) {
+        if (depth == name.length()) {
+            if (node.removeId(id)) {
+                entries--;
+            }
+            return;
+        }
+
+        int index = Arrays.binarySearch(node.labels, name.charAt(depth));
+        if (index < 0) {
+            return;
+        }
+
+        Node child = node.children[index];
+        delete(child, name, depth + 1, id);
+        if (child.size == 0 && child.children.length == 0) {
+            node.removeChild(index);
+            nodes--;
+        }
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            int index = Arrays.binarySearch(node.labels, key.charAt(i));
+            node = index < 0 ? null : node.children[index];
+        }
+        return node;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    private static class Node {
+
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        //Sorted, only the first size are in use
+        private int[] ids = NO_IDS;
+        private int size;
+
+        void insertChild(int index, char label, Node child) {
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newLabels[index] = label;
+            newChildren[index] = child;
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        void removeChild(int index) {
+            if (labels.length == 1) {
+                labels = NO_LABELS;
+                children = NO_CHILDREN;
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        boolean addId(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + Math.max(2, size >> 1));
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+            return true;
+        }
+
+        boolean appendId(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                return addId(id);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + Math.max(2, size >> 1));
+            }
+            ids[size++] = id;
+            return true;
+        }
+
+        boolean removeId(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            size--;
+            if (size == 0) {
+                ids = NO_IDS;
+            } else {
+                System.arraycopy(ids, index + 1, ids, index, size - index);
+                //Gives the room back once three quarters of it are unused
+                if (size <= ids.length >> 2) {
+                    ids = Arrays.copyOf(ids, size << 1);
+                }
+            }
+            return true;
+        }
+
+        void trimIds() {
+            if (size < ids.length) {
+                ids = size == 0 ? NO_IDS : Arrays.copyOf(ids, size);
+            }
+        }
+    }
+}
@@ -1,24 +1,97 @@
 package facades;
 
+import DTO.BatchItemDTO;
+import DTO.BatchResultDTO;
+import DTO.CacheStatsDTO;
+import DTO.NameIndexStatsDTO;
 import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
 import DTO.PersonsDTO;
+import DTO.ResidentCountsDTO;
+import DTO.SuggestionsDTO;
 import Exceptions.MissingInputException;
 import Exceptions.PersonNotFoundException;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
 import entities.Address;
 import entities.Person;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.persistence.CacheRetrieveMode;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.Query;
+import javax.persistence.RollbackException;
+import javax.persistence.TypedQuery;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.config.ResultSetType;
+import org.eclipse.persistence.queries.ScrollableCursor;
+import utils.Config;
+import utils.QueryProfiler;
+import utils.Scheduler;
 
 public class PersonFacade implements IPersonFacade {
 
     private static PersonFacade instance;
     private static EntityManagerFactory emf;
 
+    //Rows fetched per round trip when streaming. MySQL only honours it with useCursorFetch=true, see EMF_Creator.withCursorFetch
+    private static final int STREAM_FETCH_SIZE = Config.getInt("stream.fetchSize", 500);
+    private static final int BATCH_CHUNK_SIZE = Config.getInt("batch.chunkSize", 1000);
+    private static final String SELECT_PERSON_DTO = "SELECT NEW DTO.PersonDTO(p.id, p.firstName, p.lastName, p.phone, a.street, a.zip, a.city, p.version) FROM Person p JOIN p.address a";
+
+    private static final Map<String, Object> READ_ONLY = Collections.singletonMap(QueryHints.READ_ONLY, (Object) HintValues.TRUE);
+    private static final Map<String, Object> BYPASS_CACHE = Collections.singletonMap("javax.persistence.cache.retrieveMode", (Object) CacheRetrieveMode.BYPASS);
+
+    private final AddressIndex addressIndex;
+    private volatile NameIndex nameIndex;
+    private final ResidentCounts residentCounts;
+    private final AddressSweeper addressSweeper;
+    //When set, addresses left without residents are deleted by the sweeper instead of on the request
+    private final boolean sweepAddresses;
+    //Null unless write.groupCommit is set
+    private final GroupCommitWriter groupCommit;
+    //Concurrent reads with the same arguments share one database call
+    final SingleFlight<Integer, PersonDTO> personReads = new SingleFlight<>("getPerson");
+    final SingleFlight<List<Object>, PersonsDTO> pageReads = new SingleFlight<>("getPersonsPage");
+    private final SingleFlight<List<Object>, PersonsDTO> searchReads = new SingleFlight<>("searchPersons");
+
     //Private Constructor to ensure Singleton
     private PersonFacade() {
+        addressIndex = new AddressIndex(emf, Config.getInt("address.index.maxEntries", 100000));
+        rebuildNameIndex();
+
+        residentCounts = new ResidentCounts(emf);
+        residentCounts.reconcile();
+        long reconcileMs = Config.getLong("stats.reconcileMs", 300000);
+        if (reconcileMs > 0) {
+            Scheduler.every(reconcileMs, "Resident count reconciliation", residentCounts::reconcile);
+        }
+
+        addressSweeper = new AddressSweeper(emf, addressIndex, Config.getInt("address.sweepBatch", 500));
+        long sweepMs = Config.getLong("address.sweepMs", 0);
+        sweepAddresses = sweepMs > 0;
+        if (sweepAddresses) {
+            Scheduler.every(sweepMs, "Address sweep", addressSweeper::sweep);
+        }
+
+        if (Config.getBoolean("write.groupCommit", false)) {
+            groupCommit = new GroupCommitWriter(this, Config.getInt("write.groupCommit.maxItems", 100),
+                    Config.getLong("write.groupCommit.maxDelayMs", 5), Config.getInt("write.groupCommit.queue", 1000));
+        } else {
+            groupCommit = null;
+        }
     }
 
     /**
@@ -38,32 +111,218 @@ public class PersonFacade implements IPersonFacade {
         return emf.createEntityManager();
     }
 
+    /**
+     * With write.groupCommit set, the person is saved by the GroupCommitWriter
+     * together with those added at the same time, see there for the settings.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if too many
+     * persons are already waiting to be saved
+     */
     @Override
     public PersonDTO addPerson(String fName, String lName, String phone, String street, int zip, String city) throws MissingInputException {
-        if (fName.isEmpty() || lName.isEmpty()) {
-            throw new MissingInputException("First and / or Last Name is missing");
-        } else if (street.isEmpty() || zip <= 0 || city.isEmpty()) {
-            throw new MissingInputException("Street or City is missing");
+        validate(fName, lName, street, zip, city);
+
+        if (groupCommit != null) {
+            return groupCommit.add(new PersonDTO(0, fName, lName, phone, street, zip, city));
         }
+        return insertPerson(fName, lName, phone, street, zip, city);
+    }
 
+    //Inserts a validated person in a transaction of its own
+    PersonDTO insertPerson(String fName, String lName, String phone, String street, int zip, String city) {
         EntityManager em = getEntityManager();
 
-        Address address = getAddress(street, zip, city);
-        Person person = new Person(fName, lName, phone);
-
         try {
+            Address address = getAddress(em, street, zip, city);
+            Person person = new Person(fName, lName, phone);
+
             em.getTransaction().begin();
             em.persist(person);
             person.setAddress(address);
-            em.merge(person);
             em.getTransaction().commit();
 
+            nameIndex.add(person.getId(), fName, lName);
+            residentCounts.added(zip, city);
+            forgetListReads();
+
             return new PersonDTO(person);
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Imports persons in chunks with one transaction per chunk, so the
+     * inserts go to the database as JDBC batches (eclipselink.jdbc.batch-writing).
+     * Every distinct address is resolved once per chunk. If a chunk fails it
+     * is retried person by person, so a bad row only fails itself.
+     *
+     * @return one result per person, in input order
+     */
+    @Override
+    public BatchResultDTO addPersons(List<PersonDTO> persons) {
+        long start = System.nanoTime();
+        BatchItemDTO[] items = new BatchItemDTO[persons.size()];
+        List<Integer> chunk = new ArrayList<>();
+
+        for (int i = 0; i < persons.size(); i++) {
+            PersonDTO p = persons.get(i);
+            try {
+                if (p == null) {
+                    throw new MissingInputException("Person is missing");
+                }
+                validate(p.getFirstName(), p.getLastName(), p.getStreet(), p.getZip(), p.getCity());
+                chunk.add(i);
+            } catch (MissingInputException ex) {
+                items[i] = new BatchItemDTO(i, ex.getMessage());
+            }
+
+            if (chunk.size() == BATCH_CHUNK_SIZE || (i == persons.size() - 1 && !chunk.isEmpty())) {
+                addChunk(persons, chunk, items);
+                chunk.clear();
+            }
+        }
+
+        return new BatchResultDTO(Arrays.asList(items), System.nanoTime() - start);
+    }
+
+    private void addChunk(List<PersonDTO> persons, List<Integer> chunk, BatchItemDTO[] items) {
+        List<PersonDTO> valid = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            valid.add(persons.get(i));
+        }
+
+        try {
+            List<PersonDTO> added = insertPersons(valid);
+            for (int j = 0; j < chunk.size(); j++) {
+                items[chunk.get(j)] = new BatchItemDTO(chunk.get(j), added.get(j).getId());
+            }
+        } catch (RuntimeException ex) {
+            for (int i : chunk) {
+                PersonDTO p = persons.get(i);
+                try {
+                    PersonDTO added = insertPerson(p.getFirstName(), p.getLastName(), p.getPhone(), p.getStreet(), p.getZip(), p.getCity());
+                    items[i] = new BatchItemDTO(i, added.getId());
+                } catch (RuntimeException itemEx) {
+                    items[i] = new BatchItemDTO(i, String.valueOf(itemEx.getMessage()));
+                }
+            }
+        }
+    }
+
+    /*
+      Inserts validated persons in one transaction, see insertPersons(List, boolean).
+     */
+    List<PersonDTO> insertPersons(List<PersonDTO> persons) {
+        return insertPersons(persons, true);
+    }
+
+    /*
+      Inserts validated persons, and the addresses that do not exist yet, in
+      one transaction. When one of them fails, none are saved. If another node
+      inserted one of the new addresses first, the unique constraint on Address
+      fails the commit, and the retry finds the other node's row instead.
+     */
+    private List<PersonDTO> insertPersons(List<PersonDTO> persons, boolean retry) {
+        EntityManager em = getEntityManager();
+        boolean createdAddresses = false;
+
+        try {
+            em.getTransaction().begin();
+            Map<AddressIndex.Key, Address> addresses = resolveAddresses(em, persons);
+            for (Address address : addresses.values()) {
+                if (address.getId() == null) {
+                    em.persist(address);
+                    createdAddresses = true;
+                }
+            }
+
+            List<Person> added = new ArrayList<>(persons.size());
+            for (PersonDTO p : persons) {
+                Person person = new Person(p.getFirstName(), p.getLastName(), p.getPhone());
+                em.persist(person);
+                person.setAddress(addresses.get(new AddressIndex.Key(p.getStreet(), p.getZip(), p.getCity())));
+                added.add(person);
+            }
+            em.getTransaction().commit();
+
+            //Only committed addresses go in the index
+            for (Map.Entry<AddressIndex.Key, Address> entry : addresses.entrySet()) {
+                addressIndex.put(entry.getKey(), entry.getValue().getId());
+            }
+            forgetListReads();
+
+            List<PersonDTO> result = new ArrayList<>(added.size());
+            for (Person person : added) {
+                nameIndex.add(person.getId(), person.getFirstName(), person.getLastName());
+                residentCounts.added(person.getAddress().getZip(), person.getAddress().getCity());
+                result.add(new PersonDTO(person));
+            }
+            return result;
+        } catch (RollbackException ex) {
+            if (retry && createdAddresses) {
+                return insertPersons(persons, false);
+            }
+            throw ex;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /*
+      The address of every person, managed by em. Addresses that are not in
+      the AddressIndex are looked up with one query for all of them, and those
+      that do not exist are returned new, without an id.
+     */
+    private Map<AddressIndex.Key, Address> resolveAddresses(EntityManager em, List<PersonDTO> persons) {
+        Map<AddressIndex.Key, Address> addresses = new HashMap<>();
+        Set<AddressIndex.Key> missing = new HashSet<>();
+
+        for (PersonDTO p : persons) {
+            AddressIndex.Key key = new AddressIndex.Key(p.getStreet(), p.getZip(), p.getCity());
+            if (addresses.containsKey(key) || missing.contains(key)) {
+                continue;
+            }
+            Integer id = addressIndex.get(key);
+            Address address = id == null ? null : em.find(Address.class, id);
+            if (address != null) {
+                addresses.put(key, address);
+            } else {
+                //Not indexed, or the row was deleted after it was indexed
+                addressIndex.evict(key.street, key.zip, key.city);
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Set<String> streets = new HashSet<>();
+            Set<Integer> zips = new HashSet<>();
+            for (AddressIndex.Key key : missing) {
+                streets.add(key.street);
+                zips.add(key.zip);
+            }
+            //May return more than asked for, like the same street in another zip
+            List<Address> found = em.createNamedQuery("Address.getAddresses", Address.class)
+                    .setParameter("streets", streets)
+                    .setParameter("zips", zips)
+                    .getResultList();
+            for (Address address : found) {
+                AddressIndex.Key key = new AddressIndex.Key(address.getStreet(), address.getZip(), address.getCity());
+                if (missing.remove(key)) {
+                    addresses.put(key, address);
+                }
+            }
+            for (AddressIndex.Key key : missing) {
+                addresses.put(key, new Address(key.street, key.zip, key.city));
+            }
+        }
+
+        return addresses;
+    }
+
     @Override
     public PersonDTO deletePerson(int id) throws PersonNotFoundException {
         EntityManager em = getEntityManager();
@@ -76,14 +335,10 @@ public class PersonFacade implements IPersonFacade {
             }
 
             Address address = person.getAddress();
-            address.removePerson(person);
-
-            boolean deleteAddress = false;
-            if (address.getPersons().isEmpty()) {
-                deleteAddress = true;
-            }
+            boolean deleteAddress = !sweepAddresses && !hasOtherResidents(em, address, person);
 
             em.getTransaction().begin();
+            address.removePerson(person);
             em.remove(person);
 
             if (deleteAddress) {
@@ -92,18 +347,32 @@ public class PersonFacade implements IPersonFacade {
 
             em.getTransaction().commit();
 
+            evict(person, deleteAddress ? address : null);
+            nameIndex.remove(person.getId(), person.getFirstName(), person.getLastName());
+            residentCounts.removed(address.getZip(), address.getCity());
+
             return new PersonDTO(person);
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Reads go through the shared (second level) cache configured on the
+     * entities, so a hot person costs no SQL at all. Concurrent reads of
+     * the same person share one call, see SingleFlight.
+     */
     @Override
     public PersonDTO getPerson(int id) throws PersonNotFoundException {
+        return personReads.run(id, () -> findPerson(id));
+    }
+
+    private PersonDTO findPerson(int id) throws PersonNotFoundException {
         EntityManager em = getEntityManager();
 
         try {
-            Person person = em.find(Person.class, id);
+            //Read only: served from the shared cache without copying it into the persistence context
+            Person person = em.find(Person.class, id, READ_ONLY);
 
             if (person == null) {
                 throw new PersonNotFoundException("No person with provided id found");
@@ -120,17 +389,182 @@ public class PersonFacade implements IPersonFacade {
         EntityManager em = getEntityManager();
 
         try {
-            Query query = em.createNamedQuery("Persons.GetAll");
-            List<Person> persons = query.getResultList();
+            TypedQuery<PersonDTO> query = em.createNamedQuery("Persons.GetAllDTO", PersonDTO.class);
+            List<PersonDTO> persons = query.getResultList();
+
+            return new PersonsDTO(persons, null);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Streams every person through a forward-only JDBC cursor, so only one
+     * fetch of rows is held in memory at a time. Rows are projected straight
+     * into DTOs, so no entities are built or registered.
+     *
+     * @param action called once per person, in id order
+     */
+    @Override
+    public void forEachPerson(Consumer<PersonDTO> action) {
+        EntityManager em = getEntityManager();
 
-            return new PersonsDTO(persons);
+        try {
+            Query query = em.createNamedQuery("Persons.GetAllDTO");
+            query.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE);
+            query.setHint(QueryHints.RESULT_SET_TYPE, ResultSetType.ForwardOnly);
+            query.setHint(QueryHints.JDBC_FETCH_SIZE, STREAM_FETCH_SIZE);
+
+            ScrollableCursor cursor = (ScrollableCursor) query.getSingleResult();
+            try {
+                int count = 0;
+                while (cursor.hasNext()) {
+                    action.accept((PersonDTO) cursor.next());
+                    //Release the objects read so far, to keep memory flat
+                    if (++count % STREAM_FETCH_SIZE == 0) {
+                        cursor.clear();
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Keyset (seek) pagination: instead of an OFFSET the query continues
+     * right after the last row of the previous page, so every page costs
+     * the same no matter how deep it is. Rows are ordered by the sort
+     * column with the id as tie breaker, which keeps the order stable.
+     *
+     * @param after cursor from the previous page (PersonsDTO.next) or null for the first page
+     * @param limit max number of persons in the page
+     * @param sort id, firstName or lastName
+     * @return the page, with next set if there are more persons
+     */
     @Override
-    public PersonDTO editPerson(PersonDTO p) throws PersonNotFoundException, MissingInputException {
+    public PersonsDTO getPersonsPage(String after, int limit, String sort) throws MissingInputException {
+        return pageReads.run(Arrays.asList(after, limit, sort), () -> findPersonsPage(after, limit, sort));
+    }
+
+    private PersonsDTO findPersonsPage(String after, int limit, String sort) throws MissingInputException {
+        if (limit <= 0) {
+            throw new MissingInputException("Limit must be a positive number");
+        }
+
+        String column = getSortColumn(sort);
+        EntityManager em = getEntityManager();
+
+        try {
+            String jpql = SELECT_PERSON_DTO;
+            TypedQuery<PersonDTO> query;
+
+            if (after == null || after.isEmpty()) {
+                query = em.createQuery(jpql + getOrderBy(column), PersonDTO.class);
+            } else if (column == null) {
+                query = em.createQuery(jpql + " WHERE p.id > :id" + getOrderBy(column), PersonDTO.class);
+                query.setParameter("id", parseCursorId(after));
+            } else {
+                int separator = after.lastIndexOf(':');
+                if (separator < 0) {
+                    throw new MissingInputException("Invalid cursor");
+                }
+                query = em.createQuery(jpql + " WHERE p." + column + " > :value OR (p." + column + " = :value AND p.id > :id)" + getOrderBy(column), PersonDTO.class);
+                query.setParameter("value", after.substring(0, separator));
+                query.setParameter("id", parseCursorId(after.substring(separator + 1)));
+            }
+
+            //Fetch one extra row to find out if there is a next page
+            query.setMaxResults(limit + 1);
+            List<PersonDTO> persons = query.getResultList();
+
+            String next = null;
+            if (persons.size() > limit) {
+                persons = persons.subList(0, limit);
+                PersonDTO last = persons.get(limit - 1);
+                next = column == null ? String.valueOf(last.getId()) : getSortValue(last, column) + ":" + last.getId();
+            }
+
+            return new PersonsDTO(persons, next);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Finds persons whose last name, city and phone start with the given
+     * values and who live in the given zip. Fields that are null or empty
+     * are not filtered on, but at least one must be given. Pages are keyset
+     * paginated on the id, like getPersonsPage.
+     *
+     * Prefix matches ("LIKE 'x%'") can use the indexes declared on Person
+     * and Address, a match anywhere in the value could not.
+     */
+    @Override
+    public PersonsDTO searchPersons(String lastName, String city, Integer zip, String phone, String after, int limit) throws MissingInputException {
+        return searchReads.run(Arrays.asList(lastName, city, zip, phone, after, limit),
+                () -> findPersons(lastName, city, zip, phone, after, limit));
+    }
+
+    private PersonsDTO findPersons(String lastName, String city, Integer zip, String phone, String after, int limit) throws MissingInputException {
+        if (limit <= 0) {
+            throw new MissingInputException("Limit must be a positive number");
+        }
+
+        StringBuilder where = new StringBuilder();
+        Map<String, Object> parameters = new HashMap<>();
+        addPrefixFilter(where, parameters, "p.lastName", "lastName", lastName);
+        addPrefixFilter(where, parameters, "a.city", "city", city);
+        addPrefixFilter(where, parameters, "p.phone", "phone", phone);
+        if (zip != null) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append("a.zip = :zip");
+            parameters.put("zip", zip);
+        }
+
+        if (parameters.isEmpty()) {
+            throw new MissingInputException("Provide at least one of lastName, city, zip or phone");
+        }
+
+        if (after != null && !after.isEmpty()) {
+            where.append(" AND p.id > :id");
+            parameters.put("id", parseCursorId(after));
+        }
+
+        EntityManager em = getEntityManager();
+
+        try {
+            TypedQuery<PersonDTO> query = em.createQuery(SELECT_PERSON_DTO + where + getOrderBy(null), PersonDTO.class);
+            parameters.forEach(query::setParameter);
+
+            //Fetch one extra row to find out if there is a next page
+            query.setMaxResults(limit + 1);
+            List<PersonDTO> persons = query.getResultList();
+
+            String next = null;
+            if (persons.size() > limit) {
+                persons = persons.subList(0, limit);
+                next = String.valueOf(persons.get(limit - 1).getId());
+            }
+
+            return new PersonsDTO(persons, next);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Replaces the person with p.
+     *
+     * @param expectedVersion the version the client edited, or null to
+     * replace the current one
+     * @throws PreconditionFailedException when the person is no longer at expectedVersion
+     * @throws VersionConflictException when another update was committed while this one ran
+     */
+    @Override
+    public PersonDTO editPerson(PersonDTO p, Integer expectedVersion)
+            throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
         EntityManager em = getEntityManager();
 
         if (p.getFirstName().isEmpty() || p.getLastName().isEmpty()) {
@@ -138,72 +572,310 @@ public class PersonFacade implements IPersonFacade {
         }
 
         try {
-            Person person = em.find(Person.class, p.getId());
+            //Checking a version needs the one in the database, otherwise a stale cached copy is caught on commit
+            Person person = expectedVersion == null ? em.find(Person.class, p.getId()) : em.find(Person.class, p.getId(), BYPASS_CACHE);
 
             if (person == null) {
                 throw new PersonNotFoundException("Could not edit, provided id does not exist");
+            } else if (expectedVersion != null && expectedVersion != person.getVersion()) {
+                throw new PreconditionFailedException("The person was changed since version " + expectedVersion
+                        + ", it is now at version " + person.getVersion());
             }
 
-            Address address = person.getAddress();
-            
-            Address oldAddress = address;
-            boolean editAddress = false;
-            if (address.getPersons().contains(person) && address.getPersons().size() == 1) {
-                editAddress = true;
+            return update(em, person, p.getFirstName(), p.getLastName(), p.getPhone(), p.getStreet(), p.getZip(), p.getCity());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * JSON merge patch: fields left out of the patch keep their value and a
+     * removed phone is cleared. The other fields are required and cannot be
+     * removed. Only the changed columns are written, with lastEdited and the version,
+     * and nothing at all when the patch changes nothing.
+     *
+     * @param expectedVersion the version the client edited, or null to patch the current one
+     * @throws PreconditionFailedException when the person is no longer at expectedVersion
+     * @throws VersionConflictException when another update was committed while this one ran
+     */
+    @Override
+    public PersonDTO patchPerson(int id, PersonPatchDTO patch, Integer expectedVersion)
+            throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
+        if (patch == null) {
+            throw new MissingInputException("No changes provided");
+        } else if ("".equals(patch.getFirstName()) || "".equals(patch.getLastName())
+                || patch.isRemoved("firstName") || patch.isRemoved("lastName")) {
+            throw new MissingInputException("First and / or Last Name is missing");
+        } else if ("".equals(patch.getStreet()) || "".equals(patch.getCity()) || (patch.getZip() != null && patch.getZip() <= 0)
+                || patch.isRemoved("street") || patch.isRemoved("zip") || patch.isRemoved("city")) {
+            throw new MissingInputException("Street or City is missing");
+        }
+
+        EntityManager em = getEntityManager();
+
+        try {
+            //The version must come from the database, a cached copy could be behind another node's update
+            Person person = em.find(Person.class, id, BYPASS_CACHE);
+
+            if (person == null) {
+                throw new PersonNotFoundException("Could not edit, provided id does not exist");
+            } else if (expectedVersion != null && expectedVersion != person.getVersion()) {
+                throw new PreconditionFailedException("The person was changed since version " + expectedVersion
+                        + ", it is now at version " + person.getVersion());
             }
 
-            address.removePerson(person);
-            address = getAddress(p.getStreet(), p.getZip(), p.getCity());
+            Address address = person.getAddress();
+            return update(em, person,
+                    patch.getFirstName() == null ? person.getFirstName() : patch.getFirstName(),
+                    patch.getLastName() == null ? person.getLastName() : patch.getLastName(),
+                    patch.getPhone() != null || patch.isRemoved("phone") ? patch.getPhone() : person.getPhone(),
+                    patch.getStreet() == null ? address.getStreet() : patch.getStreet(),
+                    patch.getZip() == null ? address.getZip() : patch.getZip(),
+                    patch.getCity() == null ? address.getCity() : patch.getCity());
+        } finally {
+            em.close();
+        }
+    }
+
+    /*
+      Gives the person the values passed in and commits. The address is only
+      resolved again when street, zip or city changed, and the old one is
+      removed when the person was its last resident, unless the AddressSweeper
+      does that. The @Version of Person makes the update fail when another one
+      was committed in between.
+     */
+    private PersonDTO update(EntityManager em, Person person, String firstName, String lastName, String phone,
+            String street, int zip, String city) throws VersionConflictException {
+        Address oldAddress = person.getAddress();
+        String oldFirstName = person.getFirstName();
+        String oldLastName = person.getLastName();
+        boolean addressChanged = !Objects.equals(street, oldAddress.getStreet()) || zip != oldAddress.getZip()
+                || !Objects.equals(city, oldAddress.getCity());
+
+        if (!addressChanged && Objects.equals(firstName, oldFirstName) && Objects.equals(lastName, oldLastName)
+                && Objects.equals(phone, person.getPhone())) {
+            return new PersonDTO(person);
+        }
+
+        Address address = addressChanged ? getAddress(em, street, zip, city) : oldAddress;
+        boolean moved = !address.getId().equals(oldAddress.getId());
+        boolean deleteOldAddress = moved && !sweepAddresses && !hasOtherResidents(em, oldAddress, person);
 
+        try {
             em.getTransaction().begin();
             //Person
-            person.setFirstName(p.getFirstName());
-            person.setLastName(p.getLastName());
-            person.setPhone(p.getPhone());
+            person.setFirstName(firstName);
+            person.setLastName(lastName);
+            person.setPhone(phone);
             person.setLastEdited(new Date());
 
-            //Address
-            if (editAddress) {
-                em.remove(oldAddress);
+            //Address, the old one is removed when the person was its last resident
+            if (moved) {
+                oldAddress.removePerson(person);
+                person.setAddress(address);
+                if (deleteOldAddress) {
+                    em.remove(oldAddress);
+                }
             }
-            person.setAddress(address);
-            em.merge(person);
             em.getTransaction().commit();
-
-            return new PersonDTO(person);
+        } catch (RollbackException ex) {
+            if (ex.getCause() instanceof OptimisticLockException) {
+                emf.getCache().evict(Person.class, person.getId());
+                throw new VersionConflictException("The person was changed by another request, read it again and retry");
+            }
+            throw ex;
         } finally {
-            em.close();
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+
+        evict(person, deleteOldAddress ? oldAddress : null);
+        if (moved) {
+            residentCounts.removed(oldAddress.getZip(), oldAddress.getCity());
+            residentCounts.added(address.getZip(), address.getCity());
+        }
+        if (!Objects.equals(oldFirstName, person.getFirstName()) || !Objects.equals(oldLastName, person.getLastName())) {
+            nameIndex.remove(person.getId(), oldFirstName, oldLastName);
+            nameIndex.add(person.getId(), person.getFirstName(), person.getLastName());
         }
+
+        return new PersonDTO(person);
     }
 
-    private Address getAddress(String street, int zip, String city) {
-        EntityManager em = getEntityManager();
+    /**
+     * Type-ahead over first and last names, answered from the in-memory
+     * NameIndex without touching the database.
+     *
+     * @return ids of at most limit persons whose first or last name starts with prefix
+     */
+    @Override
+    public SuggestionsDTO suggest(String prefix, int limit) throws MissingInputException {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new MissingInputException("Provide the start of a name");
+        } else if (limit <= 0) {
+            throw new MissingInputException("Limit must be a positive number");
+        }
 
-        try {
-            Query query = em.createNamedQuery("Address.getAddress");
-            query.setParameter("street", street);
-            query.setParameter("zip", zip);
-            query.setParameter("city", city);
-            Address address;
+        long start = System.nanoTime();
+        List<Integer> ids = nameIndex.suggest(prefix, limit);
+        return new SuggestionsDTO(ids, (System.nanoTime() - start) / 1000.0);
+    }
 
-            List<Address> addresses = query.getResultList();
+    /**
+     * Builds the name index from a streaming scan of all persons and swaps
+     * it in. Runs at startup. Call it again after persons were changed
+     * without going through this facade.
+     */
+    public void rebuildNameIndex() {
+        NameIndex index = new NameIndex();
+        forEachPerson(person -> index.append(person.getId(), person.getFirstName(), person.getLastName()));
+        index.trimToSize();
+        nameIndex = index;
+    }
 
-            if (addresses.isEmpty()) {
-                address = new Address(street, zip, city);
-            } else {
-                address = addresses.get(0);
+    /**
+     * Residents per zip, from the in-memory counts, see ResidentCounts.
+     */
+    @Override
+    public ResidentCountsDTO getResidentsByZip() {
+        return new ResidentCountsDTO(residentCounts.getByZip());
+    }
 
-                query = em.createNamedQuery("Person.getByAddress");
-                query.setParameter("id", address.getId());
+    @Override
+    public ResidentCountsDTO getResidentsByCity() {
+        return new ResidentCountsDTO(residentCounts.getByCity());
+    }
 
-                List<Person> persons = query.getResultList();
-                address.setPerson(persons);
-            }
+    /**
+     * Recounts the residents from the database. Runs every stats.reconcileMs
+     * (default 5 minutes, 0 turns it off) and can be called after persons
+     * were changed without going through this facade.
+     */
+    public void reconcileResidentCounts() {
+        residentCounts.reconcile();
+    }
 
-            return address;
-        } finally {
-            em.close();
+    /**
+     * Runs one pass of the AddressSweeper, which otherwise runs every
+     * address.sweepMs (default 0, off). An address is deleted on the second
+     * pass that finds it without residents.
+     *
+     * @return the number of addresses deleted
+     */
+    public int sweepOrphanedAddresses() {
+        return addressSweeper.sweep();
+    }
+
+    public NameIndexStatsDTO getNameIndexStats() {
+        NameIndex index = nameIndex;
+        return new NameIndexStatsDTO(index.getEntries(), index.getNodes(), index.getApproximateBytes(),
+                index.getQueries(), index.getAverageQueryMicros());
+    }
+
+    /**
+     * Shared cache hits and misses of the reads by id, as counted by
+     * EclipseLink itself and recorded by the QueryProfiler, so they are 0
+     * with sql.profile off.
+     */
+    public List<CacheStatsDTO> getCacheStats() {
+        return Arrays.asList(
+                new CacheStatsDTO("Person", QueryProfiler.getCacheHits(Person.class), QueryProfiler.getCacheMisses(Person.class)),
+                new CacheStatsDTO("Address", QueryProfiler.getCacheHits(Address.class), QueryProfiler.getCacheMisses(Address.class)));
+    }
+
+    /*
+      Invalidates the cached person after it was changed or deleted, and the
+      address too if it was deleted. New persons need no invalidation.
+     */
+    private void evict(Person person, Address deletedAddress) {
+        emf.getCache().evict(Person.class, person.getId());
+        if (deletedAddress != null) {
+            emf.getCache().evict(Address.class, deletedAddress.getId());
+            addressIndex.evict(deletedAddress.getStreet(), deletedAddress.getZip(), deletedAddress.getCity());
         }
+        personReads.forget(person.getId());
+        forgetListReads();
+    }
+
+    //Any write can change a page or a search result, so reads in flight are not joined after it
+    private void forgetListReads() {
+        pageReads.forgetAll();
+        searchReads.forgetAll();
+    }
+
+    private void validate(String fName, String lName, String street, int zip, String city) throws MissingInputException {
+        if (fName == null || fName.isEmpty() || lName == null || lName.isEmpty()) {
+            throw new MissingInputException("First and / or Last Name is missing");
+        } else if (street == null || street.isEmpty() || zip <= 0 || city == null || city.isEmpty()) {
+            throw new MissingInputException("Street or City is missing");
+        }
+    }
+
+    //Returns the column to sort on, or null when sorting on id only
+    private String getSortColumn(String sort) throws MissingInputException {
+        if (sort == null || sort.isEmpty() || sort.equals("id")) {
+            return null;
+        } else if (sort.equals("firstName") || sort.equals("lastName")) {
+            return sort;
+        }
+        throw new MissingInputException("Unknown sort field: " + sort);
+    }
+
+    private String getOrderBy(String column) {
+        return column == null ? " ORDER BY p.id" : " ORDER BY p." + column + ", p.id";
+    }
+
+    private String getSortValue(PersonDTO person, String column) {
+        return column.equals("firstName") ? person.getFirstName() : person.getLastName();
+    }
+
+    //'!' escapes LIKE wildcards in the value, a backslash would itself need escaping in MySQL
+    private void addPrefixFilter(StringBuilder where, Map<String, Object> parameters, String path, String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(path).append(" LIKE :").append(name).append(" ESCAPE '!'");
+        parameters.put(name, value.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+    }
+
+    private int parseCursorId(String id) throws MissingInputException {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException ex) {
+            throw new MissingInputException("Invalid cursor");
+        }
+    }
+
+    /*
+      Asks the database for one other resident instead of loading them all,
+      so the cost does not depend on how many live at the address
+     */
+    private boolean hasOtherResidents(EntityManager em, Address address, Person person) {
+        return !em.createNamedQuery("Person.otherResident", Integer.class)
+                .setParameter("address", address.getId())
+                .setParameter("id", person.getId())
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Looks the address up through the address index, so in the common case
+     * this is a cache hit and em.find is served from the shared cache.
+     *
+     * @return the managed address, created if it did not exist
+     */
+    private Address getAddress(EntityManager em, String street, int zip, String city) {
+        Address address = em.find(Address.class, addressIndex.resolve(street, zip, city));
+
+        if (address == null) {
+            //The row was deleted after it was indexed
+            addressIndex.evict(street, zip, city);
+            address = em.find(Address.class, addressIndex.resolve(street, zip, city));
+        }
+
+        return address;
     }
 
 }
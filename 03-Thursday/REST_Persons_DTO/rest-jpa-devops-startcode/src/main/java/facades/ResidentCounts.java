@@ -0,0 +1,94 @@
+package facades;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Number of persons living in each zip and each city, kept in memory so the
+ * dashboards need no GROUP BY.
+ *
+ * The counts are seeded from the database and then updated by the facade on
+ * every add, delete and move. A write that happens while reconcile() reads
+ * the database can be lost, so reconcile() also runs on a schedule and logs
+ * how far the counts had drifted.
+ */
+class ResidentCounts {
+
+    private static final Logger LOGGER = Logger.getLogger(ResidentCounts.class.getName());
+
+    private final EntityManagerFactory emf;
+    private volatile ConcurrentHashMap<Integer, Long> byZip = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<String, Long> byCity = new ConcurrentHashMap<>();
+
+    ResidentCounts(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    void added(int zip, String city) {
+        add(byZip, zip, 1);
+        add(byCity, city, 1);
+    }
+
+    void removed(int zip, String city) {
+        add(byZip, zip, -1);
+        add(byCity, city, -1);
+    }
+
+    Map<Integer, Long> getByZip() {
+        return byZip;
+    }
+
+    Map<String, Long> getByCity() {
+        return byCity;
+    }
+
+    /**
+     * Replaces the counts with the ones in the database.
+     */
+    void reconcile() {
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            ConcurrentHashMap<Integer, Long> zips = new ConcurrentHashMap<>();
+            for (Object[] row : em.createNamedQuery("Address.countByZip", Object[].class).getResultList()) {
+                zips.put((Integer) row[0], (Long) row[1]);
+            }
+            ConcurrentHashMap<String, Long> cities = new ConcurrentHashMap<>();
+            for (Object[] row : em.createNamedQuery("Address.countByCity", Object[].class).getResultList()) {
+                cities.put((String) row[0], (Long) row[1]);
+            }
+
+            int drift = countDifferences(byZip, zips) + countDifferences(byCity, cities);
+            if (drift > 0) {
+                LOGGER.info("Resident counts were off for " + drift + " zips and cities");
+            }
+
+            byZip = zips;
+            byCity = cities;
+        } finally {
+            em.close();
+        }
+    }
+
+    //merge is atomic per key, and returning null drops keys that reach zero
+    private static <K> void add(ConcurrentHashMap<K, Long> counts, K key, long delta) {
+        if (key != null) {
+            counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+        }
+    }
+
+    private static <K> int countDifferences(Map<K, Long> counts, Map<K, Long> actual) {
+        Map<K, Long> remaining = new HashMap<>(actual);
+        int differences = 0;
+        for (Map.Entry<K, Long> entry : counts.entrySet()) {
+            if (!entry.getValue().equals(remaining.remove(entry.getKey()))) {
+                differences++;
+            }
+        }
+        return differences + remaining.size();
+    }
+}
@@ -0,0 +1,79 @@
+package facades;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import metrics.Coalescing;
+import metrics.Metrics;
+
+/**
+ * Lets concurrent callers of a read with the same key share one call. The
+ * first caller runs it, the others wait for its result or its exception.
+ * Nothing is kept once the call returns, so the next caller runs it again.
+ *
+ * Writers call forget after they commit, so a read that starts after the
+ * write returned runs a new call instead of joining one that may have read
+ * the old row. The callers share the returned object, so it must not be
+ * changed.
+ */
+class SingleFlight<K, V> {
+
+    interface Call<V, E extends Exception> {
+
+        V call() throws E;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Coalescing metrics;
+
+    SingleFlight(String name) {
+        this.metrics = Metrics.coalescing(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    <E extends Exception> V run(K key, Call<V, E> call) throws E {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        metrics.record(running != null);
+
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                //Every caller of a key passes the same kind of call, so it throws E
+                throw (E) cause;
+            }
+        }
+
+        V value;
+        try {
+            value = call.call();
+        } catch (Throwable ex) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+        //Removed first, so a caller arriving now starts a new call instead of getting this result
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    /**
+     * Callers already waiting on the key keep the call they joined, later
+     * ones start a new one.
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    void forgetAll() {
+        inFlight.clear();
+    }
+}
@@ -0,0 +1,214 @@
+package facades;
+
+import DTO.BatchResultDTO;
+import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
+import DTO.PersonsDTO;
+import DTO.ResidentCountsDTO;
+import DTO.SuggestionsDTO;
+import Exceptions.MissingInputException;
+import Exceptions.PersonNotFoundException;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
+import java.util.List;
+import java.util.function.Consumer;
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Decorator that records the latency and failures of every facade call in
+ * metrics.Metrics. A call counts as failed when it throws, including the
+ * expected MissingInputException and PersonNotFoundException.
+ */
+public class TimedPersonFacade implements IPersonFacade {
+
+    private static final Timer ADD_PERSON = Metrics.timer("addPerson");
+    private static final Timer ADD_PERSONS = Metrics.timer("addPersons");
+    private static final Timer DELETE_PERSON = Metrics.timer("deletePerson");
+    private static final Timer GET_PERSON = Metrics.timer("getPerson");
+    private static final Timer GET_ALL_PERSONS = Metrics.timer("getAllPersons");
+    private static final Timer GET_PERSONS_PAGE = Metrics.timer("getPersonsPage");
+    private static final Timer SEARCH_PERSONS = Metrics.timer("searchPersons");
+    private static final Timer SUGGEST = Metrics.timer("suggest");
+    private static final Timer GET_RESIDENTS_BY_ZIP = Metrics.timer("getResidentsByZip");
+    private static final Timer GET_RESIDENTS_BY_CITY = Metrics.timer("getResidentsByCity");
+    private static final Timer FOR_EACH_PERSON = Metrics.timer("forEachPerson");
+    private static final Timer EDIT_PERSON = Metrics.timer("editPerson");
+    private static final Timer PATCH_PERSON = Metrics.timer("patchPerson");
+
+    private final IPersonFacade facade;
+
+    public TimedPersonFacade(IPersonFacade facade) {
+        this.facade = facade;
+    }
+
+    @Override
+    public PersonDTO addPerson(String fName, String lName, String phone, String street, int zip, String city) throws MissingInputException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonDTO result = facade.addPerson(fName, lName, phone, street, zip, city);
+            failed = false;
+            return result;
+        } finally {
+            ADD_PERSON.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public BatchResultDTO addPersons(List<PersonDTO> persons) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            BatchResultDTO result = facade.addPersons(persons);
+            failed = false;
+            return result;
+        } finally {
+            ADD_PERSONS.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonDTO deletePerson(int id) throws PersonNotFoundException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonDTO result = facade.deletePerson(id);
+            failed = false;
+            return result;
+        } finally {
+            DELETE_PERSON.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonDTO getPerson(int id) throws PersonNotFoundException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonDTO result = facade.getPerson(id);
+            failed = false;
+            return result;
+        } finally {
+            GET_PERSON.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonsDTO getAllPersons() {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonsDTO result = facade.getAllPersons();
+            failed = false;
+            return result;
+        } finally {
+            GET_ALL_PERSONS.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonsDTO getPersonsPage(String after, int limit, String sort) throws MissingInputException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonsDTO result = facade.getPersonsPage(after, limit, sort);
+            failed = false;
+            return result;
+        } finally {
+            GET_PERSONS_PAGE.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonsDTO searchPersons(String lastName, String city, Integer zip, String phone, String after, int limit) throws MissingInputException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonsDTO result = facade.searchPersons(lastName, city, zip, phone, after, limit);
+            failed = false;
+            return result;
+        } finally {
+            SEARCH_PERSONS.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public SuggestionsDTO suggest(String prefix, int limit) throws MissingInputException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            SuggestionsDTO result = facade.suggest(prefix, limit);
+            failed = false;
+            return result;
+        } finally {
+            SUGGEST.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public ResidentCountsDTO getResidentsByZip() {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            ResidentCountsDTO result = facade.getResidentsByZip();
+            failed = false;
+            return result;
+        } finally {
+            GET_RESIDENTS_BY_ZIP.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public ResidentCountsDTO getResidentsByCity() {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            ResidentCountsDTO result = facade.getResidentsByCity();
+            failed = false;
+            return result;
+        } finally {
+            GET_RESIDENTS_BY_CITY.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public void forEachPerson(Consumer<PersonDTO> action) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            facade.forEachPerson(action);
+            failed = false;
+        } finally {
+            FOR_EACH_PERSON.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonDTO editPerson(PersonDTO p, Integer expectedVersion)
+            throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonDTO result = facade.editPerson(p, expectedVersion);
+            failed = false;
+            return result;
+        } finally {
+            EDIT_PERSON.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public PersonDTO patchPerson(int id, PersonPatchDTO patch, Integer expectedVersion)
+            throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            PersonDTO result = facade.patchPerson(id, patch, expectedVersion);
+            failed = false;
+            return result;
+        } finally {
+            PATCH_PERSON.record(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package json;
+
+import DTO.ExceptionDTO;
+import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
+import DTO.PersonsDTO;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Priority;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes PersonDTO, PersonsDTO, PersonPatchDTO and ExceptionDTO
+ * straight from and to the entity streams, using the adapters in this
+ * package. The output is compact and null fields are left out, as Gson did
+ * before.
+ *
+ * An empty body is read as null. The priority puts it ahead of the JSON-B
+ * provider Jersey registers for every other type, which would otherwise win
+ * or lose depending on the order the providers are registered in.
+ */
+@Provider
+@Priority(Priorities.USER - 100)
+@Consumes({MediaType.APPLICATION_JSON, MediaType.WILDCARD})
+@Produces(MediaType.APPLICATION_JSON)
+public class DTOJsonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    public static final PersonDTOAdapter PERSON = new PersonDTOAdapter();
+    public static final PersonsDTOAdapter PERSONS = new PersonsDTOAdapter(PERSON);
+    public static final ExceptionDTOAdapter EXCEPTION = new ExceptionDTOAdapter();
+    public static final PersonPatchDTOAdapter PERSON_PATCH = new PersonPatchDTOAdapter();
+
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new HashMap<>();
+
+    static {
+        ADAPTERS.put(PersonDTO.class, PERSON);
+        ADAPTERS.put(PersonsDTO.class, PERSONS);
+        ADAPTERS.put(ExceptionDTO.class, EXCEPTION);
+        ADAPTERS.put(PersonPatchDTO.class, PERSON_PATCH);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ADAPTERS.containsKey(type);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(entityStream, StandardCharsets.UTF_8));
+        if (isEmpty(reader)) {
+            return null;
+        }
+        return ADAPTERS.get(type).read(reader);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ADAPTERS.containsKey(type);
+    }
+
+    @Override
+    public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        JsonWriter writer = newWriter(entityStream);
+        ((TypeAdapter<Object>) ADAPTERS.get(type)).write(writer, t);
+        writer.flush();
+    }
+
+    /**
+     * @return true if nothing but whitespace is left to read
+     */
+    public static boolean isEmpty(JsonReader reader) throws IOException {
+        try {
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (EOFException ex) {
+            //A strict reader fails instead of reporting the end of an empty document
+            return true;
+        }
+    }
+
+    /**
+     * A compact writer that leaves out null fields. Flushing it does not
+     * close the underlying stream.
+     */
+    public static JsonWriter newWriter(OutputStream output) {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.setSerializeNulls(false);
+        return writer;
+    }
+}
@@ -0,0 +1,52 @@
+package json;
+
+import DTO.ExceptionDTO;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Reads and writes ExceptionDTO as {"code": 404, "message": "..."}.
+ */
+public class ExceptionDTOAdapter extends TypeAdapter<ExceptionDTO> {
+
+    @Override
+    public void write(JsonWriter out, ExceptionDTO exception) throws IOException {
+        if (exception == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("code").value(exception.getCode());
+        out.name("message").value(exception.getMessage());
+        out.endObject();
+    }
+
+    @Override
+    public ExceptionDTO read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        int code = 0;
+        String message = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (name.equals("code")) {
+                code = in.nextInt();
+            } else if (name.equals("message")) {
+                message = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ExceptionDTO(code, message);
+    }
+}
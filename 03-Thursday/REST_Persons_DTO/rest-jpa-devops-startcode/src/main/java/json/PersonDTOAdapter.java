@@ -0,0 +1,81 @@
+package json;
+
+import DTO.PersonDTO;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Reads and writes PersonDTO field by field, without reflection. Field names
+ * are the ones Gson used to derive from the class, so clients see no change.
+ */
+public class PersonDTOAdapter extends TypeAdapter<PersonDTO> {
+
+    @Override
+    public void write(JsonWriter out, PersonDTO person) throws IOException {
+        if (person == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(person.getId());
+        out.name("firstName").value(person.getFirstName());
+        out.name("lastName").value(person.getLastName());
+        out.name("phone").value(person.getPhone());
+        out.name("street").value(person.getStreet());
+        out.name("zip").value(person.getZip());
+        out.name("city").value(person.getCity());
+        out.name("version").value(person.getVersion());
+        out.endObject();
+    }
+
+    @Override
+    public PersonDTO read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        PersonDTO person = new PersonDTO();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    person.setId(in.nextInt());
+                    break;
+                case "firstName":
+                    person.setFirstName(in.nextString());
+                    break;
+                case "lastName":
+                    person.setLastName(in.nextString());
+                    break;
+                case "phone":
+                    person.setPhone(in.nextString());
+                    break;
+                case "street":
+                    person.setStreet(in.nextString());
+                    break;
+                case "zip":
+                    person.setZip(in.nextInt());
+                    break;
+                case "city":
+                    person.setCity(in.nextString());
+                    break;
+                case "version":
+                    person.setVersion(in.nextInt());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return person;
+    }
+}
@@ -0,0 +1,88 @@
+package json;
+
+import DTO.PersonPatchDTO;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Reads and writes PersonPatchDTO. Unlike PersonDTOAdapter it keeps a field
+ * set to null apart from one that is left out, as a merge patch needs.
+ */
+public class PersonPatchDTOAdapter extends TypeAdapter<PersonPatchDTO> {
+
+    @Override
+    public void write(JsonWriter out, PersonPatchDTO patch) throws IOException {
+        if (patch == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        field(out, patch, "firstName", patch.getFirstName());
+        field(out, patch, "lastName", patch.getLastName());
+        field(out, patch, "phone", patch.getPhone());
+        field(out, patch, "street", patch.getStreet());
+        field(out, patch, "zip", patch.getZip());
+        field(out, patch, "city", patch.getCity());
+        out.endObject();
+    }
+
+    @Override
+    public PersonPatchDTO read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        PersonPatchDTO patch = new PersonPatchDTO();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                patch.remove(name);
+                continue;
+            }
+            switch (name) {
+                case "firstName":
+                    patch.setFirstName(in.nextString());
+                    break;
+                case "lastName":
+                    patch.setLastName(in.nextString());
+                    break;
+                case "phone":
+                    patch.setPhone(in.nextString());
+                    break;
+                case "street":
+                    patch.setStreet(in.nextString());
+                    break;
+                case "zip":
+                    patch.setZip(in.nextInt());
+                    break;
+                case "city":
+                    patch.setCity(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return patch;
+    }
+
+    private static void field(JsonWriter out, PersonPatchDTO patch, String name, Object value) throws IOException {
+        if (value instanceof Number) {
+            out.name(name).value((Number) value);
+        } else if (value != null) {
+            out.name(name).value((String) value);
+        } else if (patch.isRemoved(name)) {
+            //Written even by a writer that leaves nulls out, it is what removes the field
+            boolean serializeNulls = out.getSerializeNulls();
+            out.setSerializeNulls(true);
+            out.name(name).nullValue();
+            out.setSerializeNulls(serializeNulls);
+        }
+    }
+}
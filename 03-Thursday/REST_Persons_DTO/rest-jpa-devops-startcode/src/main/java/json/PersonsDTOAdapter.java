@@ -0,0 +1,70 @@
+package json;
+
+import DTO.PersonDTO;
+import DTO.PersonsDTO;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes PersonsDTO as {"all": [...], "next": "..."}, using
+ * PersonDTOAdapter for the elements.
+ */
+public class PersonsDTOAdapter extends TypeAdapter<PersonsDTO> {
+
+    private final PersonDTOAdapter personAdapter;
+
+    public PersonsDTOAdapter(PersonDTOAdapter personAdapter) {
+        this.personAdapter = personAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, PersonsDTO persons) throws IOException {
+        if (persons == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("all").beginArray();
+        for (PersonDTO person : persons.getAll()) {
+            personAdapter.write(out, person);
+        }
+        out.endArray();
+        out.name("next").value(persons.getNext());
+        out.endObject();
+    }
+
+    @Override
+    public PersonsDTO read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<PersonDTO> all = new ArrayList<>();
+        String next = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (name.equals("all")) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    all.add(personAdapter.read(in));
+                }
+                in.endArray();
+            } else if (name.equals("next")) {
+                next = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new PersonsDTO(all, next);
+    }
+}
@@ -0,0 +1,37 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls of one keyed facade read, and how many of them shared a database
+ * call already in flight for the same key instead of making their own.
+ */
+public class Coalescing {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    Coalescing(String name) {
+        this.name = name;
+    }
+
+    public void record(boolean shared) {
+        calls.increment();
+        if (shared) {
+            coalesced.increment();
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getCalls() {
+        return calls.sum();
+    }
+
+    long getCoalesced() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,52 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency, responses by status code and requests in flight for one resource
+ * method.
+ */
+class EndpointMetrics {
+
+    private final String label;
+    private final Histogram histogram = new Histogram();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    //Indexed by status code, so counting a response needs no map lookup
+    private final AtomicLongArray statuses = new AtomicLongArray(600);
+
+    EndpointMetrics(String label) {
+        this.label = label;
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void finished(long nanos, int status) {
+        inFlight.decrementAndGet();
+        histogram.record(nanos);
+        counted(status);
+    }
+
+    //For responses that were never started, so there is no latency to record
+    void counted(int status) {
+        statuses.incrementAndGet(status >= 0 && status < 600 ? status : 0);
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    Histogram getHistogram() {
+        return histogram;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getStatusCount(int status) {
+        return statuses.get(status);
+    }
+}
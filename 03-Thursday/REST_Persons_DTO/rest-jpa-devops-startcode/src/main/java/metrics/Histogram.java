@@ -0,0 +1,40 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets. record() only increments atomic
+ * counters, so it takes no lock and allocates nothing.
+ */
+public class Histogram {
+
+    //Upper bounds of the buckets in nanoseconds, from 0.5 ms to 10 s. Everything slower goes in +Inf
+    static final long[] BOUNDS = {
+        500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+        100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        int i = 0;
+        while (i < BOUNDS.length && nanos > BOUNDS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return the count of bucket i alone, not cumulative. The last bucket is +Inf
+     */
+    long getBucket(int i) {
+        return buckets.get(i);
+    }
+
+    long getSumNanos() {
+        return sumNanos.sum();
+    }
+}
@@ -0,0 +1,157 @@
+package metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+
+/**
+ * Holds the request and facade metrics and renders them in the Prometheus
+ * text format.
+ *
+ * Each resource method and facade method is registered the first time it is
+ * used. After that, recording is only atomic counter updates.
+ */
+public class Metrics {
+
+    private static final ConcurrentHashMap<Method, EndpointMetrics> ENDPOINTS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Coalescing> COALESCING = new ConcurrentHashMap<>();
+    //Requests that matched no resource method, like 404s and CORS preflights
+    static final EndpointMetrics UNMATCHED = new EndpointMetrics("unmatched");
+
+    private Metrics() {
+    }
+
+    static EndpointMetrics endpoint(Class<?> resource, Method method, String httpMethod) {
+        EndpointMetrics metrics = ENDPOINTS.get(method);
+        return metrics != null ? metrics : ENDPOINTS.computeIfAbsent(method, m -> new EndpointMetrics(label(resource, m, httpMethod)));
+    }
+
+    /**
+     * @return the timer for a facade method, created on first use
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * @return the counters for a keyed facade read, created on first use
+     */
+    public static Coalescing coalescing(String name) {
+        return COALESCING.computeIfAbsent(name, Coalescing::new);
+    }
+
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(8192);
+
+        out.append("# HELP http_request_duration_seconds Time from request filter to response filter.\n");
+        out.append("# TYPE http_request_duration_seconds histogram\n");
+        for (EndpointMetrics endpoint : endpoints()) {
+            appendHistogram(out, "http_request_duration_seconds", "endpoint", endpoint.getLabel(), endpoint.getHistogram());
+        }
+
+        out.append("# HELP http_requests_in_flight Requests being handled right now.\n");
+        out.append("# TYPE http_requests_in_flight gauge\n");
+        for (EndpointMetrics endpoint : endpoints()) {
+            out.append("http_requests_in_flight{endpoint=\"").append(endpoint.getLabel()).append("\"} ")
+                    .append(endpoint.getInFlight()).append('\n');
+        }
+
+        out.append("# HELP http_responses_total Responses by status code.\n");
+        out.append("# TYPE http_responses_total counter\n");
+        for (EndpointMetrics endpoint : endpoints()) {
+            for (int status = 0; status < 600; status++) {
+                long count = endpoint.getStatusCount(status);
+                if (count > 0) {
+                    out.append("http_responses_total{endpoint=\"").append(endpoint.getLabel())
+                            .append("\",status=\"").append(status).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+
+        out.append("# HELP facade_call_duration_seconds Time spent in IPersonFacade methods.\n");
+        out.append("# TYPE facade_call_duration_seconds histogram\n");
+        for (Timer timer : TIMERS.values()) {
+            appendHistogram(out, "facade_call_duration_seconds", "method", timer.getName(), timer.getHistogram());
+        }
+
+        out.append("# HELP facade_call_errors_total IPersonFacade calls that threw.\n");
+        out.append("# TYPE facade_call_errors_total counter\n");
+        for (Timer timer : TIMERS.values()) {
+            out.append("facade_call_errors_total{method=\"").append(timer.getName()).append("\"} ")
+                    .append(timer.getErrors()).append('\n');
+        }
+
+        out.append("# HELP facade_keyed_reads_total Keyed facade reads, see facades.SingleFlight.\n");
+        out.append("# TYPE facade_keyed_reads_total counter\n");
+        for (Coalescing coalescing : COALESCING.values()) {
+            out.append("facade_keyed_reads_total{method=\"").append(coalescing.getName()).append("\"} ")
+                    .append(coalescing.getCalls()).append('\n');
+        }
+
+        out.append("# HELP facade_keyed_reads_coalesced_total Keyed facade reads that shared a call in flight for the same key.\n");
+        out.append("# TYPE facade_keyed_reads_coalesced_total counter\n");
+        for (Coalescing coalescing : COALESCING.values()) {
+            out.append("facade_keyed_reads_coalesced_total{method=\"").append(coalescing.getName()).append("\"} ")
+                    .append(coalescing.getCoalesced()).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private static List<EndpointMetrics> endpoints() {
+        List<EndpointMetrics> all = new ArrayList<>(ENDPOINTS.values());
+        all.add(UNMATCHED);
+        return all;
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, String labelName, String label, Histogram histogram) {
+        String labels = labelName + "=\"" + label + "\"";
+        long cumulative = 0;
+        for (int i = 0; i <= Histogram.BOUNDS.length; i++) {
+            cumulative += histogram.getBucket(i);
+            String le = i < Histogram.BOUNDS.length ? seconds(Histogram.BOUNDS[i]) : "+Inf";
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ").append(seconds(histogram.getSumNanos())).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9).replaceAll("0+$", "").replaceAll("\\.$", ".0");
+    }
+
+    //Like "GET person/id/{id}". Methods Jersey adds itself, like OPTIONS, get the name of their class
+    private static String label(Class<?> resource, Method method, String requestMethod) {
+        StringBuilder path = new StringBuilder();
+        Path classPath = resource.getAnnotation(Path.class);
+        if (classPath != null) {
+            path.append(classPath.value());
+        }
+        Path methodPath = method.getAnnotation(Path.class);
+        if (methodPath != null) {
+            path.append('/').append(methodPath.value());
+        }
+        if (path.length() == 0) {
+            path.append(resource.getSimpleName());
+        }
+        return httpMethod(method, requestMethod) + " " + path.toString().replace("//", "/");
+    }
+
+    //@GET, @POST and the others are themselves annotated with @HttpMethod
+    private static String httpMethod(Method method, String requestMethod) {
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod verb = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (verb != null) {
+                return verb.value();
+            }
+        }
+        return requestMethod;
+    }
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Times every request per resource method and counts its response status.
+ * For async resources the time runs until the response is resumed.
+ *
+ * Requests that reach no resource method are only counted, under
+ * "unmatched".
+ */
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START = MetricsFilter.class.getName() + ".start";
+    private static final String ENDPOINT = MetricsFilter.class.getName() + ".endpoint";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        Method method = resourceInfo.getResourceMethod();
+        EndpointMetrics endpoint = method == null ? Metrics.UNMATCHED
+                : Metrics.endpoint(resourceInfo.getResourceClass(), method, request.getMethod());
+        endpoint.started();
+        request.setProperty(ENDPOINT, endpoint);
+        request.setProperty(START, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        EndpointMetrics endpoint = (EndpointMetrics) request.getProperty(ENDPOINT);
+        Long start = (Long) request.getProperty(START);
+
+        if (endpoint == null || start == null) {
+            //Matched no resource method (e.g. a 404) or was aborted by a pre-matching filter, like a CORS preflight
+            Metrics.UNMATCHED.counted(response.getStatus());
+            return;
+        }
+        endpoint.finished(System.nanoTime() - start, response.getStatus());
+    }
+}
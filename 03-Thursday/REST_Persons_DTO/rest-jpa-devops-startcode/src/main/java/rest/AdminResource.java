@@ -0,0 +1,56 @@
+package rest;
+
+import DTO.QueryReportDTO;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import facades.PersonFacade;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import utils.ConnectionPool;
+import utils.QueryProfiler;
+
+/**
+ * Read only operational endpoints.
+ */
+@Path("admin")
+public class AdminResource {
+
+    private static final PersonFacade FACADE = Facades.PERSON_FACADE;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    @GET
+    @Path("cache")
+    @Produces({MediaType.APPLICATION_JSON})
+    public String getCacheStats() {
+        return GSON.toJson(FACADE.getCacheStats());
+    }
+
+    @GET
+    @Path("names")
+    @Produces({MediaType.APPLICATION_JSON})
+    public String getNameIndexStats() {
+        return GSON.toJson(FACADE.getNameIndexStats());
+    }
+
+    /**
+     * The top named queries and SQL statements by total time, see
+     * utils.QueryProfiler.
+     */
+    @GET
+    @Path("queries")
+    @Produces({MediaType.APPLICATION_JSON})
+    public String getQueryStats(@DefaultValue("10") @QueryParam("top") int top) {
+        return GSON.toJson(new QueryReportDTO(QueryProfiler.getTopNamedQueries(top), QueryProfiler.getTopStatements(top)));
+    }
+
+    @GET
+    @Path("pool")
+    @Produces({MediaType.APPLICATION_JSON})
+    public String getPoolStats() {
+        return GSON.toJson(ConnectionPool.getStats());
+    }
+}
@@ -23,8 +23,17 @@ public class ApplicationConfig extends Application {
         resources.add(Exceptions.GenericExceptionMapper.class);
         resources.add(Exceptions.MissingInputExceptionMapper.class);
         resources.add(Exceptions.PersonNotFoundExceptionMapper.class);
+        resources.add(Exceptions.PreconditionFailedExceptionMapper.class);
+        resources.add(Exceptions.RejectedExecutionExceptionMapper.class);
+        resources.add(Exceptions.VersionConflictExceptionMapper.class);
+        resources.add(compression.CompressionInterceptor.class);
         resources.add(cors.CorsFilter.class);
+        resources.add(json.DTOJsonProvider.class);
+        resources.add(metrics.MetricsFilter.class);
         resources.add(org.glassfish.jersey.server.wadl.internal.WadlResource.class);
+        resources.add(rest.AdminResource.class);
+        resources.add(rest.AsyncPersonResource.class);
+        resources.add(rest.MetricsResource.class);
         resources.add(rest.PersonResource.class);
     }
     
@@ -0,0 +1,223 @@
+package rest;
+
+import DTO.ExceptionDTO;
+import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
+import DTO.PersonsDTO;
+import Exceptions.MissingInputException;
+import facades.IPersonFacade;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PATCH;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import utils.DbExecutor;
+
+/**
+ * The PersonResource endpoints, but the facade is called on the DbExecutor
+ * and the HTTP thread is released as soon as the request is suspended.
+ *
+ * A request that is not answered within db.executor.timeoutMs, or that
+ * cannot be queued, is answered with 503 Service Unavailable. The batch
+ * import has no timeout, as it goes on after the 503 would have been sent.
+ * Its body is read on the HTTP thread, only the inserts run on the executor.
+ */
+@Path("async/person")
+public class AsyncPersonResource {
+
+    private static final IPersonFacade FACADE = Facades.PERSONS;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @GET
+    @Path("all")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void getAllPersons(@QueryParam("after") String after, @QueryParam("limit") Integer limit,
+            @DefaultValue("id") @QueryParam("sort") String sort, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @Suspended AsyncResponse async) {
+        submit(async, () -> {
+            PersonsDTO persons;
+            if (after == null && limit == null) {
+                persons = FACADE.getAllPersons();
+            } else {
+                int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+                persons = FACADE.getPersonsPage(after, pageSize, sort);
+            }
+
+            EntityTag tag = ETags.of(persons);
+            Response.ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+            return notModified != null ? notModified.build() : Response.ok(persons).tag(tag).build();
+        });
+    }
+
+    @GET
+    @Path("all/stream")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void streamAllPersons(@Suspended AsyncResponse async) {
+        //Resumed on the executor, so the body, and the scan behind it, are written there
+        submit(async, () -> Response.ok(PersonResource.allPersons()).build());
+    }
+
+    @GET
+    @Path("search")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void searchPersons(@QueryParam("lastName") String lastName, @QueryParam("city") String city,
+            @QueryParam("zip") Integer zip, @QueryParam("phone") String phone,
+            @QueryParam("after") String after, @QueryParam("limit") Integer limit, @Suspended AsyncResponse async) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        submit(async, () -> Response.ok(FACADE.searchPersons(lastName, city, zip, phone, after, pageSize)).build());
+    }
+
+    @GET
+    @Path("suggest")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void suggest(@QueryParam("q") String q, @DefaultValue("10") @QueryParam("limit") int limit, @Suspended AsyncResponse async) {
+        submit(async, () -> Response.ok(FACADE.suggest(q, Math.min(limit, MAX_PAGE_SIZE))).build());
+    }
+
+    @GET
+    @Path("stats/zip")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void getResidentsByZip(@Suspended AsyncResponse async) {
+        submit(async, () -> Response.ok(FACADE.getResidentsByZip()).build());
+    }
+
+    @GET
+    @Path("stats/city")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void getResidentsByCity(@Suspended AsyncResponse async) {
+        submit(async, () -> Response.ok(FACADE.getResidentsByCity()).build());
+    }
+
+    @GET
+    @Path("id/{id}")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void getPerson(@PathParam("id") int id, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @Suspended AsyncResponse async) {
+        submit(async, () -> {
+            PersonDTO person = FACADE.getPerson(id);
+
+            EntityTag tag = ETags.of(person);
+            Response.ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+            return notModified != null ? notModified.build() : Response.ok(person).tag(tag).build();
+        });
+    }
+
+    @POST
+    @Consumes({MediaType.APPLICATION_JSON})
+    @Produces({MediaType.APPLICATION_JSON})
+    public void addPerson(PersonDTO personDTO, @Suspended AsyncResponse async) {
+        submit(async, () -> Response.ok(FACADE.addPerson(personDTO.getFirstName(),
+                personDTO.getLastName(), personDTO.getPhone(),
+                personDTO.getStreet(), personDTO.getZip(),
+                personDTO.getCity())).build());
+    }
+
+    @POST
+    @Path("batch")
+    @Consumes({MediaType.APPLICATION_JSON, PersonResource.NDJSON})
+    @Produces({MediaType.APPLICATION_JSON})
+    public void addPersons(InputStream persons, @Context HttpHeaders headers, @Suspended AsyncResponse async) {
+        List<PersonDTO> personDTOs;
+        try {
+            personDTOs = PersonResource.readPersons(persons, headers);
+        } catch (MissingInputException | IOException | RuntimeException ex) {
+            async.resume(ex);
+            return;
+        }
+        submit(async, 0, () -> Response.ok(FACADE.addPersons(personDTOs)).build());
+    }
+
+    @PUT
+    @Consumes({MediaType.APPLICATION_JSON})
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("id/{id}")
+    public void editPerson(@PathParam("id") int id, PersonDTO personDTO, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            @Suspended AsyncResponse async) {
+        submit(async, () -> {
+            personDTO.setId(id);
+            PersonDTO edited = FACADE.editPerson(personDTO, ETags.versionOf(ifMatch));
+            return Response.ok(edited).tag(ETags.of(edited)).build();
+        });
+    }
+
+    @PATCH
+    @Consumes({MediaType.APPLICATION_JSON, PersonResource.MERGE_PATCH})
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("id/{id}")
+    public void patchPerson(@PathParam("id") int id, PersonPatchDTO patch, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            @Suspended AsyncResponse async) {
+        submit(async, () -> {
+            PersonDTO patched = FACADE.patchPerson(id, patch, ETags.versionOf(ifMatch));
+            return Response.ok(patched).tag(ETags.of(patched)).build();
+        });
+    }
+
+    @DELETE
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("id/{id}")
+    public void deletePerson(@PathParam("id") int id, @Suspended AsyncResponse async) {
+        submit(async, () -> {
+            FACADE.deletePerson(id);
+            return Response.ok("{\"status\": \"removed\"}").build();
+        });
+    }
+
+    /*
+      Runs the call on the DbExecutor and resumes the response with its
+      result. Exceptions are resumed too, so the usual exception mappers
+      answer them.
+     */
+    private static void submit(AsyncResponse async, Callable<Response> call) {
+        submit(async, DbExecutor.TIMEOUT_MS, call);
+    }
+
+    //A timeoutMs of 0 waits for the call however long it takes
+    private static void submit(AsyncResponse async, long timeoutMs, Callable<Response> call) {
+        if (timeoutMs > 0) {
+            async.setTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+            async.setTimeoutHandler(timedOut -> timedOut.resume(unavailable("The database did not answer in time")));
+        }
+
+        try {
+            DbExecutor.execute(() -> {
+                //Nobody is waiting for the answer any more
+                if (async.isDone()) {
+                    return;
+                }
+                try {
+                    async.resume(call.call());
+                } catch (Throwable ex) {
+                    async.resume(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            async.resume(unavailable("Too many requests are waiting for the database"));
+        }
+    }
+
+    private static Response unavailable(String message) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ExceptionDTO(503, message))
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
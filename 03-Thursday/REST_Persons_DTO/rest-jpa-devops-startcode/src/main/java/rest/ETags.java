@@ -0,0 +1,113 @@
+package rest;
+
+import DTO.PersonDTO;
+import DTO.PersonsDTO;
+import Exceptions.PreconditionFailedException;
+import compression.CompressionInterceptor;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+
+/**
+ * Strong ETags. A single person is tagged with its version, so a tag sent
+ * back in If-Match says which version the client edited. Lists are tagged
+ * with a 64 bit FNV-1a hash of the DTO fields, so a tag can be checked
+ * without serializing the payload. The CompressionInterceptor adds the
+ * encoding to the tag of a compressed body, which is ignored when a tag is
+ * read back.
+ */
+class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {
+    }
+
+    static EntityTag of(PersonDTO person) {
+        return new EntityTag(String.valueOf(person.getVersion()));
+    }
+
+    /**
+     * @param ifMatch the If-Match header, like "3"
+     * @return the version it holds, or null when the header is missing or "*"
+     */
+    static Integer versionOf(String ifMatch) throws PreconditionFailedException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(CompressionInterceptor.identityValue(EntityTag.valueOf(ifMatch.trim()).getValue()));
+        } catch (IllegalArgumentException ex) {
+            throw new PreconditionFailedException("If-Match must hold the ETag of the person, got " + ifMatch);
+        }
+    }
+
+    /**
+     * Evaluates If-None-Match like Request.evaluatePreconditions, but a tag
+     * with an encoding added matches the tag it was made from.
+     *
+     * @return a 304 Not Modified to send, or null when the body must be sent
+     */
+    static Response.ResponseBuilder notModified(String ifNoneMatch, EntityTag tag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String part : ifNoneMatch.split(",")) {
+            String value = part.trim();
+            if (value.equals("*")) {
+                return Response.notModified(tag);
+            }
+            try {
+                EntityTag sent = EntityTag.valueOf(value);
+                //If-None-Match uses the weak comparison, so W/ is ignored
+                if (CompressionInterceptor.identityValue(sent.getValue()).equals(tag.getValue())) {
+                    //The tag the client holds, so it stays valid for the encoding it got
+                    return Response.notModified(sent);
+                }
+            } catch (IllegalArgumentException ex) {
+                //Not a tag, so it matches nothing
+            }
+        }
+        return null;
+    }
+
+    static EntityTag of(PersonsDTO persons) {
+        long hash = FNV_OFFSET;
+        for (PersonDTO person : persons.getAll()) {
+            hash = hash(hash, person);
+        }
+        hash = hash(hash, persons.getNext());
+        return new EntityTag(Long.toHexString(hash));
+    }
+
+    private static long hash(long hash, PersonDTO person) {
+        hash = hash(hash, person.getId());
+        hash = hash(hash, person.getFirstName());
+        hash = hash(hash, person.getLastName());
+        hash = hash(hash, person.getPhone());
+        hash = hash(hash, person.getStreet());
+        hash = hash(hash, person.getZip());
+        hash = hash(hash, person.getCity());
+        return hash(hash, person.getVersion());
+    }
+
+    private static long hash(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return (hash ^ 0xff) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        //Separator, so "ab" + "c" differs from "a" + "bc"
+        return (hash ^ 0xfe) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,26 @@
+package rest;
+
+import facades.IPersonFacade;
+import facades.PersonFacade;
+import facades.TimedPersonFacade;
+import javax.persistence.EntityManagerFactory;
+import utils.EMF_Creator;
+
+/**
+ * The EntityManagerFactory and facade every resource uses, so the
+ * application creates one of each, whichever resource is loaded first.
+ */
+class Facades {
+
+    static final EntityManagerFactory EMF = EMF_Creator.createEntityManagerFactory();
+
+    //An alternative way to get the EntityManagerFactory, whithout having to type the details all over the code
+    //EMF = EMF_Creator.createEntityManagerFactory(DbSelector.DEV, Strategy.CREATE);
+
+    static final PersonFacade PERSON_FACADE = PersonFacade.getPersonFacade(EMF);
+    //The facade with its calls timed for the metrics
+    static final IPersonFacade PERSONS = new TimedPersonFacade(PERSON_FACADE);
+
+    private Facades() {
+    }
+}
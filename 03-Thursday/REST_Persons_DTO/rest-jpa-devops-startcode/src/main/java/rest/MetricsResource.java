@@ -0,0 +1,19 @@
+package rest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import metrics.Metrics;
+
+/**
+ * Request and facade metrics for Prometheus to scrape.
+ */
+@Path("metrics")
+public class MetricsResource {
+
+    @GET
+    @Produces("text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return Metrics.toPrometheus();
+    }
+}
@@ -1,36 +1,53 @@
 package rest;
 
+import DTO.BatchResultDTO;
 import DTO.ExceptionDTO;
 import DTO.PersonDTO;
+import DTO.PersonPatchDTO;
+import DTO.PersonsDTO;
 import Exceptions.MissingInputException;
 import Exceptions.PersonNotFoundException;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import utils.EMF_Creator;
-import facades.PersonFacade;
-import javax.persistence.EntityManagerFactory;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import json.DTOJsonProvider;
+import facades.IPersonFacade;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PATCH;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 //Todo Remove or change relevant parts before ACTUAL use
 @Path("person")
 public class PersonResource {
 
-    private static final EntityManagerFactory EMF = EMF_Creator.createEntityManagerFactory();
-    
-    //An alternative way to get the EntityManagerFactory, whithout having to type the details all over the code
-    //EMF = EMF_Creator.createEntityManagerFactory(DbSelector.DEV, Strategy.CREATE);
-    
-    private static final PersonFacade FACADE =  PersonFacade.getPersonFacade(EMF);
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final IPersonFacade FACADE = Facades.PERSONS;
+    static final String NDJSON = "application/x-ndjson";
+    static final String MERGE_PATCH = "application/merge-patch+json";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
     
     @GET
     @Produces({MediaType.APPLICATION_JSON})
@@ -38,25 +55,119 @@ public class PersonResource {
         return Response.ok().build();
     }
             
+    /**
+     * Answers 304 Not Modified when If-None-Match holds the current ETag,
+     * which is computed from the DTOs without serializing them.
+     */
     @GET
     @Path("all")
     @Produces({MediaType.APPLICATION_JSON})
-    public String getAllPersons() {
-        return GSON.toJson(FACADE.getAllPersons());
+    public Response getAllPersons(@QueryParam("after") String after, @QueryParam("limit") Integer limit,
+            @DefaultValue("id") @QueryParam("sort") String sort, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws MissingInputException {
+        PersonsDTO persons;
+
+        //Without paging parameters the whole table is returned, as before
+        if (after == null && limit == null) {
+            persons = FACADE.getAllPersons();
+        } else {
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+            persons = FACADE.getPersonsPage(after, pageSize, sort);
+        }
+
+        EntityTag tag = ETags.of(persons);
+        Response.ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(persons).tag(tag).build();
     }
     
+    /**
+     * Same body as /all, but every person is written to the response as it
+     * is read from the database, so memory use and time to first byte do
+     * not grow with the number of persons.
+     */
+    @GET
+    @Path("all/stream")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response streamAllPersons() {
+        return Response.ok(allPersons()).build();
+    }
+
+    //The database is read while the body is written
+    static StreamingOutput allPersons() {
+        return output -> {
+            JsonWriter writer = DTOJsonProvider.newWriter(output);
+            writer.beginObject().name("all").beginArray();
+            FACADE.forEachPerson(person -> {
+                try {
+                    DTOJsonProvider.PERSON.write(writer, person);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.endArray().endObject();
+            writer.flush();
+        };
+    }
+
+    /**
+     * Prefix search, e.g. search?lastName=Niel&zip=3555. Paginated like
+     * /all: pass the returned next as after to get the following page.
+     */
+    @GET
+    @Path("search")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response searchPersons(@QueryParam("lastName") String lastName, @QueryParam("city") String city,
+            @QueryParam("zip") Integer zip, @QueryParam("phone") String phone,
+            @QueryParam("after") String after, @QueryParam("limit") Integer limit) throws MissingInputException {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        return Response.ok(FACADE.searchPersons(lastName, city, zip, phone, after, pageSize)).build();
+    }
+
+    /**
+     * Type-ahead on first and last names, e.g. suggest?q=nie. Returns the
+     * ids of up to limit (default 10) matching persons.
+     */
+    @GET
+    @Path("suggest")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response suggest(@QueryParam("q") String q, @DefaultValue("10") @QueryParam("limit") int limit) throws MissingInputException {
+        return Response.ok(FACADE.suggest(q, Math.min(limit, MAX_PAGE_SIZE))).build();
+    }
+
+    @GET
+    @Path("stats/zip")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getResidentsByZip() {
+        return Response.ok(FACADE.getResidentsByZip()).build();
+    }
+
+    @GET
+    @Path("stats/city")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getResidentsByCity() {
+        return Response.ok(FACADE.getResidentsByCity()).build();
+    }
+
     @GET
     @Path("id/{id}")
     @Produces({MediaType.APPLICATION_JSON})
-    public Response getPerson(@PathParam("id") int id) throws PersonNotFoundException{          
-        return Response.ok(FACADE.getPerson(id)).build();
+    public Response getPerson(@PathParam("id") int id, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws PersonNotFoundException{          
+        PersonDTO person = FACADE.getPerson(id);
+
+        EntityTag tag = ETags.of(person);
+        Response.ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(person).tag(tag).build();
     }
 
     @POST
     @Consumes({MediaType.APPLICATION_JSON})
     @Produces({MediaType.APPLICATION_JSON})
-    public Response addPerson(String person) throws MissingInputException{
-        PersonDTO personDTO = GSON.fromJson(person, PersonDTO.class);
+    public Response addPerson(PersonDTO personDTO) throws MissingInputException{
         PersonDTO personAdded = FACADE.addPerson(personDTO.getFirstName(),
                 personDTO.getLastName(), personDTO.getPhone(),
                 personDTO.getStreet(), personDTO.getZip(),
@@ -65,17 +176,76 @@ public class PersonResource {
         return Response.ok(personAdded).build();
     }
     
+    /**
+     * Bulk import. The body is either a JSON array of persons or NDJSON
+     * (Content-Type application/x-ndjson, one person per line).
+     */
+    @POST
+    @Path("batch")
+    @Consumes({MediaType.APPLICATION_JSON, NDJSON})
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response addPersons(InputStream persons, @Context HttpHeaders headers) throws MissingInputException, IOException {
+        BatchResultDTO result = FACADE.addPersons(readPersons(persons, headers));
+        return Response.ok(result).build();
+    }
+
+    //Reads the body of a bulk import, a JSON array or NDJSON
+    static List<PersonDTO> readPersons(InputStream persons, HttpHeaders headers) throws MissingInputException, IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(persons, StandardCharsets.UTF_8));
+        List<PersonDTO> personDTOs = new ArrayList<>();
+
+        if (headers.getMediaType() != null && headers.getMediaType().isCompatible(MediaType.valueOf(NDJSON))) {
+            //A lenient reader accepts a sequence of top level values, one per line
+            reader.setLenient(true);
+            while (!DTOJsonProvider.isEmpty(reader)) {
+                personDTOs.add(DTOJsonProvider.PERSON.read(reader));
+            }
+        } else if (!DTOJsonProvider.isEmpty(reader)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                personDTOs.add(DTOJsonProvider.PERSON.read(reader));
+            }
+            reader.endArray();
+        }
+
+        if (personDTOs.isEmpty()) {
+            throw new MissingInputException("No persons provided");
+        }
+        return personDTOs;
+    }
+    
+    /**
+     * Replaces the person. Send the ETag from GET as If-Match to replace
+     * that version only, like PATCH: 412 when the person has changed since,
+     * 409 when another update races this one.
+     */
     @PUT
     @Consumes({MediaType.APPLICATION_JSON})
     @Produces({MediaType.APPLICATION_JSON})
     @Path("id/{id}")
-    public Response editPerson(@PathParam("id") int id, String person)throws PersonNotFoundException, MissingInputException{
-        PersonDTO personDTO = GSON.fromJson(person, PersonDTO.class);
+    public Response editPerson(@PathParam("id") int id, PersonDTO personDTO, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch)
+            throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException{
         personDTO.setId(id);
         
-        PersonDTO editedPerson = FACADE.editPerson(personDTO);
+        PersonDTO editedPerson = FACADE.editPerson(personDTO, ETags.versionOf(ifMatch));
         
-        return Response.ok(editedPerson).build();
+        return Response.ok(editedPerson).tag(ETags.of(editedPerson)).build();
+    }
+    
+    /**
+     * Partial update as a JSON merge patch (RFC 7396): only the fields in the
+     * body are changed, and "phone": null clears the phone. Send the ETag
+     * from GET as If-Match to edit that version only: 412 when the person
+     * has changed since, 409 when another update races this one.
+     */
+    @PATCH
+    @Consumes({MediaType.APPLICATION_JSON, MERGE_PATCH})
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("id/{id}")
+    public Response patchPerson(@PathParam("id") int id, PersonPatchDTO patch, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch)
+            throws PersonNotFoundException, MissingInputException, PreconditionFailedException, VersionConflictException {
+        PersonDTO patched = FACADE.patchPerson(id, patch, ETags.versionOf(ifMatch));
+        return Response.ok(patched).tag(ETags.of(patched)).build();
     }
     
     @DELETE
@@ -0,0 +1,132 @@
+package rest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.UriBuilder;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http2.Http2AddOn;
+import org.glassfish.grizzly.http2.Http2Configuration;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import utils.Config;
+import utils.ConnectionPool;
+import utils.DbExecutor;
+
+/**
+ * Runs ApplicationConfig on an embedded Grizzly server, as an alternative to
+ * deploying the WAR to Tomcat. Start it with "mvn exec:java".
+ *
+ * Settings (see utils.Config):
+ * server.host / server.port        where to listen (0.0.0.0:8080)
+ * server.workers                   "platform" (default), or "virtual" for a
+ *                                  virtual thread per request (Java 21+)
+ * server.threads                   size of the platform thread pool (200)
+ * server.keepAlive.idleSeconds     idle keep-alive connections are closed
+ *                                  after this (30)
+ * server.keepAlive.maxRequests     requests per connection, -1 is no limit (1000)
+ * server.http2                     HTTP/2 over cleartext (true)
+ * server.shutdownGraceSeconds      time given to requests in flight on
+ *                                  shutdown (30)
+ *
+ * Virtual threads make a blocked JDBC call cheap, so the number of
+ * concurrent requests is no longer bounded by OS threads. The connection
+ * pool still bounds how many of them use the database at once. They are
+ * opt-in because Connector/J 8.0.17 from the pom does its socket I/O in
+ * synchronized blocks, which keeps the carrier thread busy for the whole
+ * query; only turn them on with a driver that uses locks instead (8.0.29+)
+ * and a Java 21+ JVM.
+ */
+public class StandaloneServer {
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final long graceSeconds;
+
+    public StandaloneServer(URI baseUri) {
+        this.workers = createWorkers();
+        this.graceSeconds = Config.getLong("server.shutdownGraceSeconds", 30);
+
+        ResourceConfig rc = ResourceConfig.forApplication(new ApplicationConfig());
+        this.server = GrizzlyHttpServerFactory.createHttpServer(baseUri, rc, false);
+
+        for (NetworkListener listener : server.getListeners()) {
+            listener.getTransport().setWorkerThreadPool(workers);
+            listener.getKeepAlive().setIdleTimeoutInSeconds(Config.getInt("server.keepAlive.idleSeconds", 30));
+            listener.getKeepAlive().setMaxRequestsCount(Config.getInt("server.keepAlive.maxRequests", 1000));
+
+            if (Config.getBoolean("server.http2", true)) {
+                listener.registerAddOn(new Http2AddOn(Http2Configuration.builder()
+                        .executorService(workers)
+                        .build()));
+            }
+        }
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    /**
+     * Stops accepting connections, then waits up to the grace period for
+     * requests in flight, including async ones still queued for the
+     * database, before closing the thread pools and the connection pool.
+     * Clients that keep an HTTP/2 connection open hold the shutdown until
+     * the grace period runs out.
+     */
+    public void stop() {
+        try {
+            server.shutdown(graceSeconds, TimeUnit.SECONDS).get();
+            DbExecutor.shutdown(graceSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            System.out.println("Graceful shutdown failed --> " + ex.getMessage());
+        } finally {
+            server.shutdownNow();
+            workers.shutdownNow();
+            ConnectionPool.close();
+        }
+    }
+
+    private static ExecutorService createWorkers() {
+        String mode = Config.get("server.workers", "platform");
+
+        if (mode.equals("virtual")) {
+            try {
+                //Looked up by reflection, so the code still builds and runs on Java 8
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                System.out.println("Handling requests on virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException ex) {
+                System.out.println("Virtual threads are not available on this JVM, using platform threads");
+            }
+        }
+
+        int threads = Config.getInt("server.threads", 200);
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI baseUri = UriBuilder.fromUri("http://" + Config.get("server.host", "0.0.0.0") + "/api/")
+                .port(Config.getInt("server.port", 8080))
+                .build();
+
+        StandaloneServer server = new StandaloneServer(baseUri);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "shutdown"));
+        server.start();
+        System.out.println("Listening on " + baseUri);
+
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,45 @@
+package utils;
+
+/**
+ * Reads tuning settings. A setting like "stream.fetchSize" can be given as a
+ * system property (-Dstream.fetchSize=500) or, when DEPLOYED, as the
+ * environment variable STREAM_FETCHSIZE. System properties win.
+ */
+public class Config {
+
+    private Config() {
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            System.out.println("Ignoring invalid value for " + key + " --> " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            System.out.println("Ignoring invalid value for " + key + " --> " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import DTO.PoolStatsDTO;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+/**
+ * External JDBC connection pool (HikariCP) handed to EclipseLink as its
+ * non-JTA data source by EMF_Creator when DEPLOYED. Set DB_POOL=none to
+ * fall back to EclipseLink's own connection handling.
+ *
+ * Settings (environment variable names in parentheses):
+ * pool.minIdle (POOL_MINIDLE), pool.maxSize (POOL_MAXSIZE),
+ * pool.acquireTimeoutMs (POOL_ACQUIRETIMEOUTMS), pool.leakDetectionMs
+ * (POOL_LEAKDETECTIONMS) and pool.statementCacheSize (POOL_STATEMENTCACHESIZE).
+ */
+public class ConnectionPool {
+
+    private static HikariDataSource dataSource;
+
+    //Time spent by callers waiting for a connection, recorded by Hikari
+    private static final LongAdder ACQUIRED = new LongAdder();
+    private static final LongAdder ACQUIRE_NANOS = new LongAdder();
+    private static final AtomicLong MAX_ACQUIRE_NANOS = new AtomicLong();
+    private static final LongAdder TIMEOUTS = new LongAdder();
+
+    private ConnectionPool() {
+    }
+
+    public static boolean isEnabled() {
+        return !"none".equalsIgnoreCase(Config.get("db.pool", "hikari"));
+    }
+
+    public static synchronized DataSource create(String url, String user, String password) {
+        if (dataSource != null) {
+            return dataSource;
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("persons");
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMinimumIdle(Config.getInt("pool.minIdle", 2));
+        config.setMaximumPoolSize(Config.getInt("pool.maxSize", 10));
+        config.setConnectionTimeout(Config.getLong("pool.acquireTimeoutMs", 5000));
+        config.setLeakDetectionThreshold(Config.getLong("pool.leakDetectionMs", 0));
+        //Prepared statement cache in the MySQL driver
+        int statementCacheSize = Config.getInt("pool.statementCacheSize", 250);
+        if (statementCacheSize > 0) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+        }
+        config.setMetricsTrackerFactory(new WaitTimeTrackerFactory());
+
+        dataSource = new HikariDataSource(config);
+        return dataSource;
+    }
+
+    public static synchronized void close() {
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    public static PoolStatsDTO getStats() {
+        HikariDataSource ds = dataSource;
+        if (ds == null || ds.getHikariPoolMXBean() == null) {
+            return new PoolStatsDTO();
+        }
+
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        long acquired = ACQUIRED.sum();
+        return new PoolStatsDTO(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(), pool.getTotalConnections(), ds.getMaximumPoolSize(),
+                acquired == 0 ? 0 : ACQUIRE_NANOS.sum() / acquired / 1000,
+                MAX_ACQUIRE_NANOS.get() / 1000, TIMEOUTS.sum());
+    }
+
+    private static class WaitTimeTrackerFactory implements MetricsTrackerFactory {
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long nanos) {
+                    ACQUIRED.increment();
+                    ACQUIRE_NANOS.add(nanos);
+                    MAX_ACQUIRE_NANOS.accumulateAndGet(nanos, Math::max);
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    TIMEOUTS.increment();
+                }
+            };
+        }
+    }
+}
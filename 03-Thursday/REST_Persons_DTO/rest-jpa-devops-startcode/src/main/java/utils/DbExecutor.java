@@ -0,0 +1,63 @@
+package utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that run blocking database work for the async endpoints, so the
+ * HTTP worker threads are never parked on JDBC.
+ *
+ * Size it to the connection pool: db.executor.threads (default pool.maxSize,
+ * or 10), with at most db.executor.queue (default 200) waiting tasks. Work
+ * beyond that is rejected instead of piling up. db.executor.timeoutMs
+ * (default 5000) is how long a request may wait for its answer.
+ */
+public class DbExecutor {
+
+    public static final long TIMEOUT_MS = Config.getLong("db.executor.timeoutMs", 5000);
+
+    private static final ThreadPoolExecutor EXECUTOR = create();
+
+    private DbExecutor() {
+    }
+
+    private static ThreadPoolExecutor create() {
+        int threads = Config.getInt("db.executor.threads", Config.getInt("pool.maxSize", 10));
+        int queue = Config.getInt("db.executor.queue", 200);
+        AtomicInteger count = new AtomicInteger();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), runnable -> {
+                    Thread thread = new Thread(runnable, "db-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     */
+    public static void execute(Runnable task) {
+        EXECUTOR.execute(task);
+    }
+
+    public static int getQueued() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    public static int getActive() {
+        return EXECUTOR.getActiveCount();
+    }
+
+    /**
+     * Lets running work finish, waiting at most the given time.
+     */
+    public static void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        EXECUTOR.shutdown();
+        EXECUTOR.awaitTermination(timeout, unit);
+    }
+}
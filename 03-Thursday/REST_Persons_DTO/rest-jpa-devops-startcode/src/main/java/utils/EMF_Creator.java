@@ -1,5 +1,7 @@
 package utils;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
@@ -43,12 +45,21 @@ public class EMF_Creator {
             System.out.println("CONNECTION_STR -->" + System.getenv("CONNECTION_STR"));
             String user = System.getenv("USER");
             String pw = System.getenv("PW");
-            String connection_str = System.getenv("CONNECTION_STR");
+            String connection_str = withCursorFetch(System.getenv("CONNECTION_STR"));
             Properties props = new Properties();
-            props.setProperty("javax.persistence.jdbc.user", user);
-            props.setProperty("javax.persistence.jdbc.password", pw);
-            props.setProperty("javax.persistence.jdbc.url", connection_str);
-            props.setProperty("javax.persistence.jdbc.driver", "com.mysql.cj.jdbc.Driver");
+            if (ConnectionPool.isEnabled()) {
+                System.out.println("USING CONNECTION POOL");
+                props.put("javax.persistence.nonJtaDataSource", ConnectionPool.create(connection_str, user, pw));
+                //Blank out the credentials from persistence.xml, the pool already has them
+                props.setProperty("javax.persistence.jdbc.user", "");
+                props.setProperty("javax.persistence.jdbc.password", "");
+            } else {
+                props.setProperty("javax.persistence.jdbc.user", user);
+                props.setProperty("javax.persistence.jdbc.password", pw);
+                props.setProperty("javax.persistence.jdbc.url", connection_str);
+                props.setProperty("javax.persistence.jdbc.driver", "com.mysql.cj.jdbc.Driver");
+            }
+            props.putAll(getTuningProperties());
             return Persistence.createEntityManagerFactory("pu", props);
         }
 
@@ -63,7 +74,7 @@ public class EMF_Creator {
         }
         EntityManagerFactory emf = null;
         try {
-         emf =  Persistence.createEntityManagerFactory(puName, null);
+         emf =  Persistence.createEntityManagerFactory(puName, getTuningProperties());
        
         } catch (javax.persistence.PersistenceException ex){
             System.out.println("##########################################################");
@@ -75,4 +86,34 @@ public class EMF_Creator {
         }
          return emf;
     }
+
+    /**
+     * Connector/J reads the whole result set into memory and ignores the
+     * fetch size unless useCursorFetch=true is in the url, so it is added to
+     * MySQL urls that do not set it. Only statements given a fetch size, like
+     * PersonFacade.forEachPerson, then read with a server side cursor.
+     */
+    static String withCursorFetch(String url) {
+        if (url == null || !url.startsWith("jdbc:mysql:") || url.contains("useCursorFetch=")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+    }
+
+    /*
+      Settings shared by all persistence units, see utils.Config for how to set them.
+      For MySQL, add rewriteBatchedStatements=true to the connection string to get the full effect of batch writing
+     */
+    private static Map<String, Object> getTuningProperties() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("eclipselink.jdbc.batch-writing.size", String.valueOf(Config.getInt("jdbc.batchSize", 100)));
+
+        //Connection settings given as system properties win, used to run the API on another database like H2
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("javax.persistence.jdbc.")) {
+                props.put(name, System.getProperty(name));
+            }
+        }
+        return props;
+    }
 }
@@ -0,0 +1,61 @@
+package utils;
+
+import entities.Address;
+import entities.Person;
+import org.eclipse.persistence.config.CacheIsolationType;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Registered as eclipselink.session.customizer in persistence.xml. Applies
+ * the settings that can not be given as plain persistence unit properties.
+ */
+public class EclipseLinkCustomizer implements SessionCustomizer {
+
+    //Must match the @TableGenerator names on the entities
+    private static final String[] SEQUENCES = {"PERSON_SEQ", "ADDRESS_SEQ"};
+
+    @Override
+    public void customize(Session session) throws Exception {
+        //Ids are handed out from blocks of this size, one table update per block
+        int allocationSize = Config.getInt("id.allocationSize", 50);
+        for (String name : SEQUENCES) {
+            Sequence sequence = session.getLogin().getSequence(name);
+            if (sequence != null) {
+                sequence.setPreallocationSize(allocationSize);
+            }
+        }
+
+        customizeCache(session.getDescriptor(Person.class), "cache.person");
+        customizeCache(session.getDescriptor(Address.class), "cache.address");
+
+        if (Config.getBoolean("sql.profile", true)) {
+            session.setProfiler(new QueryProfiler());
+        }
+    }
+
+    /*
+      Overrides the @Cache settings of an entity with <prefix>.size,
+      <prefix>.ttlMs and <prefix>.isolation (SHARED, PROTECTED or ISOLATED)
+     */
+    private void customizeCache(ClassDescriptor descriptor, String prefix) {
+        if (descriptor == null) {
+            return;
+        }
+        int size = Config.getInt(prefix + ".size", -1);
+        if (size >= 0) {
+            descriptor.setIdentityMapSize(size);
+        }
+        long ttl = Config.getLong(prefix + ".ttlMs", -1);
+        if (ttl > 0) {
+            descriptor.setCacheInvalidationPolicy(new TimeToLiveCacheInvalidationPolicy(ttl));
+        }
+        String isolation = Config.get(prefix + ".isolation", null);
+        if (isolation != null) {
+            descriptor.setCacheIsolation(CacheIsolationType.valueOf(isolation.toUpperCase()));
+        }
+    }
+}
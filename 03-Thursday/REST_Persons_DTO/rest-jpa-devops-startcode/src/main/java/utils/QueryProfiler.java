@@ -0,0 +1,199 @@
+package utils;
+
+import DTO.QueryStatsDTO;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Record;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionProfiler;
+
+/**
+ * EclipseLink profiler, installed by EclipseLinkCustomizer, that records
+ * count, total and max time and rows for every query the session runs. It
+ * keys them by named query (like "Person.getByAddress") and by SQL shape,
+ * the SQL with "?" for the parameters. Implicit queries, like the address
+ * fetched with a person, show up under their SQL only.
+ *
+ * Queries slower than sql.slowQueryMs (default 500) are logged as one
+ * key=value line to the "sql.slow" logger. The parameters are left out on
+ * purpose, as they hold personal data. At most sql.maxShapes (default 500)
+ * distinct keys are tracked, the rest are counted under "other".
+ *
+ * It also counts the shared cache hits and misses EclipseLink reports for
+ * reads by primary key, per entity.
+ */
+public class QueryProfiler implements SessionProfiler {
+
+    private static final Logger SLOW_LOG = Logger.getLogger("sql.slow");
+    private static final long SLOW_NANOS = Config.getLong("sql.slowQueryMs", 500) * 1_000_000;
+    private static final int MAX_KEYS = Config.getInt("sql.maxShapes", 500);
+
+    private static final ConcurrentHashMap<String, Stats> BY_NAME = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Stats> BY_SQL = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, LongAdder> CACHE_HITS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, LongAdder> CACHE_MISSES = new ConcurrentHashMap<>();
+
+    @Override
+    public Object profileExecutionOfQuery(DatabaseQuery query, Record row, AbstractSession session) {
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = session.internalExecuteQuery(query, (AbstractRecord) row);
+            return result;
+        } finally {
+            record(query, result, System.nanoTime() - start);
+        }
+    }
+
+    private static void record(DatabaseQuery query, Object result, long nanos) {
+        long rows = countRows(result);
+        String name = query.getName();
+        String sql = query.getSQLString();
+
+        if (name != null && !name.isEmpty()) {
+            stats(BY_NAME, name).add(nanos, rows);
+        }
+        if (sql != null) {
+            stats(BY_SQL, sql).add(nanos, rows);
+        }
+
+        if (nanos >= SLOW_NANOS) {
+            SLOW_LOG.warning("slow_query millis=" + nanos / 1_000_000 + " rows=" + rows
+                    + " query=\"" + (name == null || name.isEmpty() ? query.getClass().getSimpleName() : name) + "\""
+                    + " sql=\"" + sql + "\"");
+        }
+    }
+
+    //Read queries return a list or an object, modify queries the number of rows changed
+    private static long countRows(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return 1;
+    }
+
+    private static Stats stats(ConcurrentHashMap<String, Stats> map, String key) {
+        Stats stats = map.get(key);
+        if (stats == null) {
+            stats = map.computeIfAbsent(map.size() < MAX_KEYS ? key : "other", k -> new Stats());
+        }
+        return stats;
+    }
+
+    public static long getCacheHits(Class<?> entity) {
+        LongAdder hits = CACHE_HITS.get(entity);
+        return hits == null ? 0 : hits.sum();
+    }
+
+    public static long getCacheMisses(Class<?> entity) {
+        LongAdder misses = CACHE_MISSES.get(entity);
+        return misses == null ? 0 : misses.sum();
+    }
+
+    /**
+     * @return the named queries with the highest total time first
+     */
+    public static List<QueryStatsDTO> getTopNamedQueries(int top) {
+        return top(BY_NAME, top);
+    }
+
+    /**
+     * @return the SQL shapes with the highest total time first
+     */
+    public static List<QueryStatsDTO> getTopStatements(int top) {
+        return top(BY_SQL, top);
+    }
+
+    private static List<QueryStatsDTO> top(ConcurrentHashMap<String, Stats> map, int top) {
+        List<QueryStatsDTO> all = new ArrayList<>();
+        map.forEach((key, stats) -> all.add(new QueryStatsDTO(key, stats.count.sum(), stats.totalNanos.sum(),
+                stats.maxNanos.get(), stats.rows.sum())));
+        return all.stream()
+                .sorted(Comparator.comparingDouble(QueryStatsDTO::getTotalMillis).reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+    }
+
+    private static class Stats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder rows = new LongAdder();
+
+        void add(long nanos, long rowCount) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            rows.add(rowCount);
+        }
+    }
+
+    //Only query execution is profiled, the operation and event callbacks are ignored
+    @Override
+    public int getProfileWeight() {
+        return SessionProfiler.NORMAL;
+    }
+
+    @Override
+    public void setProfileWeight(int weight) {
+    }
+
+    @Override
+    public void setSession(Session session) {
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public void startOperationProfile(String operationName) {
+    }
+
+    @Override
+    public void startOperationProfile(String operationName, DatabaseQuery query, int weight) {
+    }
+
+    @Override
+    public void endOperationProfile(String operationName) {
+    }
+
+    @Override
+    public void endOperationProfile(String operationName, DatabaseQuery query, int weight) {
+    }
+
+    @Override
+    public void update(String meterName, Object value) {
+    }
+
+    @Override
+    public void occurred(String meterName, AbstractSession session) {
+    }
+
+    @Override
+    public void occurred(String meterName, DatabaseQuery query, AbstractSession session) {
+        if (query == null || query.getReferenceClass() == null) {
+            return;
+        }
+        if (SessionProfiler.CacheHits.equals(meterName)) {
+            CACHE_HITS.computeIfAbsent(query.getReferenceClass(), k -> new LongAdder()).increment();
+        } else if (SessionProfiler.CacheMisses.equals(meterName)) {
+            CACHE_MISSES.computeIfAbsent(query.getReferenceClass(), k -> new LongAdder()).increment();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package utils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One daemon thread for periodic background jobs, so they neither keep the
+ * JVM alive nor each need a thread of their own. Keep jobs short.
+ */
+public class Scheduler {
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Scheduler() {
+    }
+
+    /**
+     * Runs the job every periodMs, first after one period. A job that throws
+     * is logged and still runs next time.
+     */
+    public static ScheduledFuture<?> every(long periodMs, String name, Runnable job) {
+        return EXECUTOR.scheduleWithFixedDelay(() -> {
+            try {
+                job.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(Scheduler.class.getName()).log(Level.WARNING, name + " failed", ex);
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,19 @@
+-- Moves an existing database from IDENTITY ids to the ID_GEN table used by
+-- the @TableGenerator on Person and Address.
+-- Run once, with the application stopped, before deploying the new version.
+
+CREATE TABLE IF NOT EXISTS ID_GEN (
+    GEN_NAME VARCHAR(50) NOT NULL,
+    GEN_VALUE DECIMAL(38),
+    PRIMARY KEY (GEN_NAME)
+);
+
+INSERT IGNORE INTO ID_GEN (GEN_NAME, GEN_VALUE) VALUES ('PERSON_SEQ', 0), ('ADDRESS_SEQ', 0);
+
+-- Continue after the highest id handed out by AUTO_INCREMENT
+UPDATE ID_GEN SET GEN_VALUE = GREATEST(GEN_VALUE, (SELECT COALESCE(MAX(ID), 0) FROM PERSON)) WHERE GEN_NAME = 'PERSON_SEQ';
+UPDATE ID_GEN SET GEN_VALUE = GREATEST(GEN_VALUE, (SELECT COALESCE(MAX(ID), 0) FROM ADDRESS)) WHERE GEN_NAME = 'ADDRESS_SEQ';
+
+-- Optional: the ids are now always given by the application
+-- ALTER TABLE PERSON MODIFY ID INT NOT NULL;
+-- ALTER TABLE ADDRESS MODIFY ID INT NOT NULL;
@@ -0,0 +1,10 @@
+-- Indexes for GET /api/person/search, declared with @Index on Person and
+-- Address. Schema generation only creates them for new tables, so run this
+-- once on an existing database.
+-- The (STREET, ZIP, CITY) lookup uses the unique index added by
+-- 004_address_unique.sql.
+
+CREATE INDEX IDX_PERSON_LASTNAME ON PERSON (LASTNAME);
+CREATE INDEX IDX_PERSON_PHONE ON PERSON (PHONE);
+CREATE INDEX IDX_ADDRESS_ZIP ON ADDRESS (ZIP);
+CREATE INDEX IDX_ADDRESS_CITY ON ADDRESS (CITY);
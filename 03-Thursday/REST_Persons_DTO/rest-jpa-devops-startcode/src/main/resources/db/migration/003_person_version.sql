@@ -0,0 +1,6 @@
+-- Version column for the optimistic locking on Person (@Version), used by
+-- PATCH /api/person/id/{id} and its If-Match check. Schema generation only
+-- adds it to new tables, so run this once on an existing database.
+-- Existing rows start at version 0.
+
+ALTER TABLE PERSON ADD COLUMN VERSION INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,26 @@
+-- Unique constraint on ADDRESS (STREET, ZIP, CITY), declared with
+-- @UniqueConstraint on Address. AddressIndex relies on it when two nodes
+-- create the same address at once. Schema generation only adds it to new
+-- tables, so run this once on an existing database, with the application
+-- stopped.
+-- Before the index, concurrent writes could create the same address twice.
+-- Those duplicates are merged into the one with the lowest id first, or
+-- adding the constraint would fail. Rows with a NULL street or city can
+-- not break the constraint and are left alone.
+
+-- Move the residents of a duplicate to the lowest id of the same address
+UPDATE PERSON
+SET ADDRESS_ID = (
+    SELECT MIN(k.ID) FROM ADDRESS a, ADDRESS k
+    WHERE a.ID = PERSON.ADDRESS_ID AND k.STREET = a.STREET AND k.ZIP = a.ZIP AND k.CITY = a.CITY)
+WHERE ADDRESS_ID IN (SELECT ID FROM ADDRESS WHERE STREET IS NOT NULL AND CITY IS NOT NULL)
+AND ADDRESS_ID NOT IN (
+    SELECT KEEP_ID FROM (SELECT MIN(ID) AS KEEP_ID FROM ADDRESS GROUP BY STREET, ZIP, CITY) k);
+
+-- The derived table lets MySQL read ADDRESS while deleting from it
+DELETE FROM ADDRESS
+WHERE STREET IS NOT NULL AND CITY IS NOT NULL
+AND ID NOT IN (
+    SELECT KEEP_ID FROM (SELECT MIN(ID) AS KEEP_ID FROM ADDRESS GROUP BY STREET, ZIP, CITY) k);
+
+ALTER TABLE ADDRESS ADD CONSTRAINT UNQ_ADDRESS_STREET_ZIP_CITY UNIQUE (STREET, ZIP, CITY);
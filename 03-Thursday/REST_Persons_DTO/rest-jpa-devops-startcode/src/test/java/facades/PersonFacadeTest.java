@@ -1,15 +1,30 @@
 package facades;
 
+import DTO.BatchResultDTO;
+import DTO.CacheStatsDTO;
 import DTO.PersonDTO;
 import DTO.PersonsDTO;
+import DTO.ResidentCountsDTO;
 import entities.Person;
 import Exceptions.MissingInputException;
 import Exceptions.PersonNotFoundException;
+import Exceptions.PreconditionFailedException;
+import Exceptions.VersionConflictException;
 import entities.Address;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import metrics.Metrics;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -185,6 +200,44 @@ public class PersonFacadeTest {
         assertTrue(exception.getMessage().equals("First and / or Last Name is missing"));
     }
 
+    @Test
+    public void testAddPersons_success() throws PersonNotFoundException {
+        // Arrange
+        PersonDTO valid = personDTOs.get(0);
+        PersonDTO invalid = new PersonDTO(0, "", "Larsen", "12345678", "Danmark", 3555, "Himlen");
+
+        // Act
+        BatchResultDTO actual = facade.addPersons(Arrays.asList(valid, invalid));
+
+        // Assert
+        assertEquals(1, actual.getCreated());
+        assertEquals(1, actual.getFailed());
+        assertEquals("First and / or Last Name is missing", actual.getItems().get(1).getMessage());
+        assertEquals(valid, facade.getPerson(actual.getItems().get(0).getId()));
+    }
+
+    @Test
+    public void testAddPersons_new_address_created_once() {
+        // Arrange
+        PersonDTO existing = personDTOs.get(0);
+        PersonDTO first = new PersonDTO(0, "Sven", "Svensen", "12345678", "Norge", 3555, "Oslo");
+        PersonDTO second = new PersonDTO(0, "Lars", "Larsen", "87654321", "Norge", 3555, "Oslo");
+
+        // Act
+        BatchResultDTO actual = facade.addPersons(Arrays.asList(existing, first, second));
+
+        // Assert
+        assertEquals(3, actual.getCreated());
+        EntityManager em = emf.createEntityManager();
+        try {
+            assertEquals(4L, (long) em.createQuery("SELECT COUNT(a) FROM Address a", Long.class).getSingleResult());
+            assertEquals(em.find(Person.class, actual.getItems().get(1).getId()).getAddress().getId(),
+                    em.find(Person.class, actual.getItems().get(2).getId()).getAddress().getId());
+        } finally {
+            em.close();
+        }
+    }
+
     @Test
     public void testDeletePerson_success() throws PersonNotFoundException {
         // Arrange
@@ -251,6 +304,255 @@ public class PersonFacadeTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testForEachPerson_success() {
+        // Arrange
+        List<PersonDTO> actual = new ArrayList<>();
+
+        // Act
+        facade.forEachPerson(actual::add);
+
+        // Assert
+        assertEquals(personDTOs, actual);
+    }
+
+    @Test
+    public void testGetPersonsPage_success() throws MissingInputException {
+        // Arrange
+        List<PersonDTO> expected = personDTOs;
+
+        // Act
+        PersonsDTO first = facade.getPersonsPage(null, 2, "id");
+        PersonsDTO second = facade.getPersonsPage(first.getNext(), 2, "id");
+
+        // Assert
+        assertEquals(expected.subList(0, 2), first.getAll());
+        assertEquals(expected.subList(2, 3), second.getAll());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    public void testGetPersonsPage_sorted_by_lastName() throws MissingInputException {
+        // Act
+        PersonsDTO first = facade.getPersonsPage(null, 1, "lastName");
+        PersonsDTO second = facade.getPersonsPage(first.getNext(), 2, "lastName");
+
+        // Assert
+        assertEquals("Larsen", first.getAll().get(0).getLastName());
+        assertEquals(personDTOs.subList(0, 2), second.getAll());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    public void testGetPersonsPage_invalid_sort() {
+        // Act
+        MissingInputException exception = assertThrows(MissingInputException.class, ()
+                -> facade.getPersonsPage(null, 2, "phone")
+        );
+
+        // Assert
+        assertTrue(exception.getMessage().equals("Unknown sort field: phone"));
+    }
+
+    @Test
+    public void testSearchPersons_lastName_prefix() throws MissingInputException {
+        // Arrange
+        List<PersonDTO> expected = personDTOs.subList(0, 2);
+
+        // Act
+        PersonsDTO first = facade.searchPersons("Niel", null, 3555, null, null, 1);
+        PersonsDTO second = facade.searchPersons("Niel", null, 3555, null, first.getNext(), 1);
+
+        // Assert
+        assertEquals(expected.subList(0, 1), first.getAll());
+        assertEquals(expected.subList(1, 2), second.getAll());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    public void testSuggest_success() throws MissingInputException {
+        // Arrange
+        List<Integer> expected = Arrays.asList(personDTOs.get(0).getId(), personDTOs.get(1).getId());
+        //The test data is inserted without the facade, so the index must be rebuilt
+        facade.rebuildNameIndex();
+
+        // Act
+        List<Integer> actual = facade.suggest("NIEL", 10).getIds();
+
+        // Assert
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
+
+    @Test
+    public void testNameIndex_large_single_name() {
+        // Arrange
+        int count = 200000;
+        NameIndex index = new NameIndex();
+
+        // Act
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int id = 1; id <= count; id++) {
+                index.append(id, "Hans", "Hansen");
+            }
+            index.trimToSize();
+            index.add(count / 2, "Hans", "Hansen");
+            for (int id = 1; id <= count; id += 2) {
+                index.remove(id, "Hans", "Hansen");
+            }
+            index.add(count + 1, "Hans", "Hansen");
+        });
+        List<Integer> actual = index.suggest("hansen", 3);
+
+        // Assert
+        assertEquals(2 * (count / 2 + 1), index.getEntries());
+        assertEquals(Arrays.asList(2, 4, 6), actual);
+    }
+
+    @Test
+    public void testGetResidentsByZip_after_add() throws MissingInputException {
+        // Arrange
+        //The test data is inserted without the facade, so the counts must be seeded again
+        facade.reconcileResidentCounts();
+
+        // Act
+        facade.addPerson("Sven", "Svensen", "12345678", "Norge", 3555, "Oslo");
+        ResidentCountsDTO actual = facade.getResidentsByZip();
+
+        // Assert
+        assertEquals(Long.valueOf(4), actual.getResidents().get("3555"));
+        assertEquals(4, actual.getTotal());
+    }
+
+    @Test
+    public void testSweepOrphanedAddresses() {
+        // Arrange
+        Address orphan = new Address("Tomgrund", 3555, "Himlen");
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(orphan);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        // Act
+        int marked = facade.sweepOrphanedAddresses();
+        int deleted = facade.sweepOrphanedAddresses();
+
+        // Assert
+        assertEquals(0, marked);
+        assertEquals(1, deleted);
+        em = emf.createEntityManager();
+        try {
+            assertNull(em.find(Address.class, orphan.getId()));
+            assertEquals(3L, (long) em.createQuery("SELECT COUNT(a) FROM Address a", Long.class).getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testGroupCommit_bad_row_fails_alone() {
+        // Arrange
+        GroupCommitWriter writer = new GroupCommitWriter(facade, 3, 1000, 10);
+
+        // Act
+        CompletableFuture<PersonDTO> first = writer.submit(new PersonDTO(0, "Sven", "Svensen", "12345678", "Norge", 3555, "Oslo"));
+        CompletableFuture<PersonDTO> bad = writer.submit(null);
+        CompletableFuture<PersonDTO> third = writer.submit(new PersonDTO(0, "Lars", "Larsen", "87654321", "Norge", 3555, "Oslo"));
+
+        // Assert
+        assertTrue(first.join().getId() > 0);
+        assertTrue(third.join().getId() > 0);
+        assertThrows(CompletionException.class, () -> bad.join());
+    }
+
+    @Test
+    public void testSingleFlight_shares_call_in_flight() throws Exception {
+        // Arrange
+        SingleFlight<Integer, String> flight = new SingleFlight<>("testSingleFlight");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<String> first = executor.submit(() -> flight.run(1, () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "Nicklas";
+            }));
+            started.await();
+            Future<String> second = executor.submit(() -> flight.run(1, () -> {
+                calls.incrementAndGet();
+                return "Mathias";
+            }));
+            while (!Metrics.toPrometheus().contains("facade_keyed_reads_coalesced_total{method=\"testSingleFlight\"} 1")) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            // Assert
+            assertEquals("Nicklas", first.get());
+            assertEquals("Nicklas", second.get());
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetPerson_after_delete_does_not_join_older_read() throws Exception {
+        // Arrange
+        PersonDTO deleted = personDTOs.get(0);
+        List<Object> firstPage = Arrays.asList(null, 10, null);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            //Reads that started before the delete and still see the person
+            executor.submit(() -> facade.personReads.run(deleted.getId(), () -> {
+                started.countDown();
+                release.await();
+                return deleted;
+            }));
+            executor.submit(() -> facade.pageReads.run(firstPage, () -> {
+                started.countDown();
+                release.await();
+                return new PersonsDTO(personDTOs, null);
+            }));
+            started.await();
+
+            // Act
+            facade.deletePerson(deleted.getId());
+
+            // Assert
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertThrows(PersonNotFoundException.class, () -> facade.getPerson(deleted.getId()));
+                assertFalse(facade.getPersonsPage(null, 10, null).getAll().contains(deleted));
+            });
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSearchPersons_no_criteria() {
+        // Act
+        MissingInputException exception = assertThrows(MissingInputException.class, ()
+                -> facade.searchPersons(null, "", null, null, null, 10)
+        );
+
+        // Assert
+        assertTrue(exception.getMessage().equals("Provide at least one of lastName, city, zip or phone"));
+    }
+
 //    @Test
 //    public void testEditPerson_success() throws PersonNotFoundException, MissingInputException {
 //        // Arrange
@@ -260,7 +562,7 @@ public class PersonFacadeTest {
 //        expected.setPhone("00000000");
 //
 //        // Act
-//        PersonDTO actual = facade.editPerson(expected);
+//        PersonDTO actual = facade.editPerson(expected, null);
 //
 //        // Assert
 //        assertEquals(expected, actual);
@@ -274,7 +576,7 @@ public class PersonFacadeTest {
 
         // Act
         MissingInputException exception = assertThrows(MissingInputException.class, ()
-                -> facade.editPerson(person)
+                -> facade.editPerson(person, null)
         );
 
         // Assert
@@ -289,7 +591,7 @@ public class PersonFacadeTest {
 
         // Act
         MissingInputException exception = assertThrows(MissingInputException.class, ()
-                -> facade.editPerson(person)
+                -> facade.editPerson(person, null)
         );
 
         // Assert
@@ -305,13 +607,154 @@ public class PersonFacadeTest {
 
         // Act
         MissingInputException exception = assertThrows(MissingInputException.class, ()
-                -> facade.editPerson(person)
+                -> facade.editPerson(person, null)
         );
 
         // Assert
         assertTrue(exception.getMessage().equals("First and / or Last Name is missing"));
     }
 
+    @Test
+    public void testAddPerson_concurrent_same_address() throws Exception {
+        // Arrange
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<PersonDTO>> added = new ArrayList<>();
+
+        try {
+            // Act
+            for (int i = 0; i < threads; i++) {
+                String firstName = "Sven" + i;
+                added.add(executor.submit(() -> {
+                    start.await();
+                    return facade.addPerson(firstName, "Svensen", "12345678", "Fjordvej", 4321, "Bergen");
+                }));
+            }
+            start.countDown();
+            for (Future<PersonDTO> person : added) {
+                person.get();
+            }
+
+            // Assert
+            EntityManager em = emf.createEntityManager();
+            try {
+                assertEquals(1L, (long) em.createQuery("SELECT COUNT(a) FROM Address a WHERE a.street = 'Fjordvej'", Long.class).getSingleResult());
+                assertEquals(1L, (long) em.createQuery("SELECT COUNT(DISTINCT p.address.id) FROM Person p WHERE p.lastName = 'Svensen'", Long.class).getSingleResult());
+            } finally {
+                em.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAddressIndex_bounded() {
+        // Arrange
+        AddressIndex index = new AddressIndex(emf, 10);
+        List<Integer> ids = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 30; i++) {
+            ids.add(index.resolve("Fjordvej " + i, 4321, "Bergen"));
+        }
+
+        // Assert
+        assertEquals(10, index.size());
+        //The newest address is indexed although the index was full
+        assertEquals(ids.get(29), index.get(new AddressIndex.Key("Fjordvej 29", 4321, "Bergen")));
+        //A dropped address is found again, not created twice
+        assertEquals(ids.get(0), Integer.valueOf(index.resolve("Fjordvej 0", 4321, "Bergen")));
+        assertEquals(10, index.size());
+    }
+
+    @Test
+    public void testGetPerson_second_read_is_cache_hit() throws PersonNotFoundException {
+        // Arrange
+        int id = personDTOs.get(0).getId();
+        facade.getPerson(id);
+        CacheStatsDTO before = facade.getCacheStats().get(0);
+
+        // Act
+        facade.getPerson(id);
+        CacheStatsDTO after = facade.getCacheStats().get(0);
+
+        // Assert
+        assertEquals("Person", after.getEntity());
+        assertEquals(before.getHits() + 1, after.getHits());
+        assertEquals(before.getMisses(), after.getMisses());
+    }
+
+    @Test
+    public void testEditPerson_evicts_cached_person() throws Exception {
+        // Arrange
+        PersonDTO person = facade.getPerson(personDTOs.get(0).getId());
+        person.setFirstName("Lars");
+
+        // Act
+        facade.editPerson(person, null);
+        CacheStatsDTO before = facade.getCacheStats().get(0);
+        PersonDTO actual = facade.getPerson(person.getId());
+        CacheStatsDTO after = facade.getCacheStats().get(0);
+
+        // Assert
+        assertEquals("Lars", actual.getFirstName());
+        assertEquals(before.getMisses() + 1, after.getMisses());
+    }
+
+    @Test
+    public void testDeletePerson_evicts_cached_person() throws PersonNotFoundException {
+        // Arrange
+        int id = personDTOs.get(0).getId();
+        facade.getPerson(id);
+
+        // Act
+        facade.deletePerson(id);
+
+        // Assert
+        assertThrows(PersonNotFoundException.class, () -> facade.getPerson(id));
+    }
+
+    @Test
+    public void testEditPerson_stale_version() throws PersonNotFoundException {
+        // Arrange
+        PersonDTO person = facade.getPerson(personDTOs.get(0).getId());
+        int staleVersion = person.getVersion() - 1;
+        person.setFirstName("Lars");
+
+        // Act
+        assertThrows(PreconditionFailedException.class, () -> facade.editPerson(person, staleVersion));
+
+        // Assert
+        assertEquals(personDTOs.get(0).getFirstName(), facade.getPerson(person.getId()).getFirstName());
+    }
+
+    @Test
+    public void testEditPerson_version_conflict() throws PersonNotFoundException {
+        // Arrange
+        //Loads the person into the shared cache, where the facade reads it from
+        PersonDTO person = facade.getPerson(personDTOs.get(0).getId());
+        //Another writer commits after that read, through its own EntityManager and past the cache
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery("UPDATE PERSON SET FIRSTNAME = 'Sven', VERSION = VERSION + 1 WHERE ID = ?")
+                    .setParameter(1, person.getId())
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        person.setFirstName("Lars");
+
+        // Act
+        assertThrows(VersionConflictException.class, () -> facade.editPerson(person, null));
+
+        // Assert
+        assertEquals("Sven", facade.getPerson(person.getId()).getFirstName());
+    }
+
     @Test
     public void testEditPerson_invalid_id() throws PersonNotFoundException, MissingInputException {
         // Arrange
@@ -320,7 +763,7 @@ public class PersonFacadeTest {
 
         // Act
         PersonNotFoundException exception = assertThrows(PersonNotFoundException.class, ()
-                -> facade.editPerson(person)
+                -> facade.editPerson(person, null)
         );
 
         // Assert
@@ -5,12 +5,23 @@ import DTO.PersonsDTO;
 import entities.Address;
 import entities.Person;
 import io.restassured.RestAssured;
+import io.restassured.config.DecoderConfig;
+import io.restassured.config.RestAssuredConfig;
 import static io.restassured.RestAssured.given;
 import io.restassured.http.ContentType;
 import io.restassured.parsing.Parser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.ws.rs.core.Response;
@@ -19,13 +30,17 @@ import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.endsWith;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import utils.DbExecutor;
 import utils.EMF_Creator;
 
 /**
@@ -42,6 +57,8 @@ public class PersonResourceTest {
     private static final URI BASE_URI = UriBuilder.fromUri(SERVER_URL).port(SERVER_PORT).build();
     private static HttpServer httpServer;
     private static EntityManagerFactory emf;
+    //Leaves the body as it was sent, so the Content-Encoding can be checked
+    private static final RestAssuredConfig RAW = RestAssured.config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders());
 
     static HttpServer startServer() {
         ResourceConfig rc = ResourceConfig.forApplication(new ApplicationConfig());
@@ -171,6 +188,131 @@ public class PersonResourceTest {
         assertThat(actual, is(expected));
     }
 
+    @Test
+    public void testGetPersonById_not_modified() {
+        int id = personDTOs.get(0).getId();
+        String etag = given().when().get("/person/id/" + id).then().statusCode(200).extract().header("ETag");
+        
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/person/id/" + id)
+                .then()
+                .statusCode(Response.Status.NOT_MODIFIED.getStatusCode());
+    }
+
+    @Test
+    public void testGetAllPersons_not_modified() {
+        String etag = given().when().get("/person/all").then().statusCode(200).extract().header("ETag");
+        
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/person/all")
+                .then()
+                .statusCode(Response.Status.NOT_MODIFIED.getStatusCode());
+    }
+
+    @Test
+    public void testGetAllPersons_vary_accept_encoding() {
+        given()
+                .header("Accept-Encoding", "gzip")
+                .when()
+                .get("/person/all")
+                .then()
+                .statusCode(200)
+                .header("Vary", containsString("Accept-Encoding"));
+    }
+
+    @Test
+    public void testGetAllPersons_gzip() throws IOException {
+        addPersons(20);
+        String expected = given().header("Accept-Encoding", "identity").when().get("/person/all").then().statusCode(200).extract().asString();
+
+        io.restassured.response.Response response = given()
+                .config(RAW)
+                .header("Accept-Encoding", "gzip")
+                .when()
+                .get("/person/all");
+
+        assertThat(response.getStatusCode(), is(200));
+        assertThat(response.getHeader("Content-Encoding"), is("gzip"));
+        assertThat(response.getHeader("ETag"), endsWith("-gzip\""));
+        assertThat(read(new GZIPInputStream(new ByteArrayInputStream(response.asByteArray()))), is(expected));
+    }
+
+    @Test
+    public void testGetAllPersons_deflate() throws IOException {
+        addPersons(20);
+        String expected = given().header("Accept-Encoding", "identity").when().get("/person/all").then().statusCode(200).extract().asString();
+
+        io.restassured.response.Response response = given()
+                .config(RAW)
+                .header("Accept-Encoding", "deflate")
+                .when()
+                .get("/person/all");
+
+        assertThat(response.getStatusCode(), is(200));
+        assertThat(response.getHeader("Content-Encoding"), is("deflate"));
+        assertThat(read(new InflaterInputStream(new ByteArrayInputStream(response.asByteArray()))), is(expected));
+    }
+
+    @Test
+    public void testGetPersonById_small_body_not_compressed() {
+        int id = personDTOs.get(0).getId();
+
+        given()
+                .config(RAW)
+                .header("Accept-Encoding", "gzip")
+                .when()
+                .get("/person/id/" + id)
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", nullValue())
+                .header("ETag", is("\"" + personDTOs.get(0).getVersion() + "\""));
+    }
+
+    @Test
+    public void testGetAllPersons_accept_encoding_q_values() {
+        addPersons(20);
+
+        assertThat(contentEncoding("gzip;q=0, deflate"), is("deflate"));
+        assertThat(contentEncoding("gzip;q=0.5, deflate;q=0.8"), is("deflate"));
+        assertThat(contentEncoding("deflate, gzip"), is("gzip"));
+        assertThat(contentEncoding("*"), is("gzip"));
+        assertThat(contentEncoding("br, *;q=0.1"), is("gzip"));
+        assertThat(contentEncoding("*;q=0"), nullValue());
+        assertThat(contentEncoding("gzip;q=0, deflate;q=0"), nullValue());
+        assertThat(contentEncoding("br"), nullValue());
+    }
+
+    @Test
+    public void testGetAllPersons_gzip_not_modified() {
+        addPersons(20);
+        String etag = given().config(RAW).header("Accept-Encoding", "gzip").when().get("/person/all").then().statusCode(200).extract().header("ETag");
+
+        given()
+                .config(RAW)
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", etag)
+                .when()
+                .get("/person/all")
+                .then()
+                .statusCode(Response.Status.NOT_MODIFIED.getStatusCode());
+    }
+
+    @Test
+    public void testMetrics_records_requests() {
+        given().when().get("/person/id/" + personDTOs.get(0).getId()).then().statusCode(200);
+        
+        given()
+                .when()
+                .get("/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("http_responses_total{endpoint=\"GET person/id/{id}\",status=\"200\"}"));
+    }
+
     @Test
     public void testGetPersonById_not_found() {
         int id = personDTOs.get(personDTOs.size() - 1).getId() + 1;
@@ -278,6 +420,123 @@ public class PersonResourceTest {
                 .statusCode(HttpStatus.BAD_REQUEST_400.getStatusCode());
     }
 
+    @Test
+    public void testEditPerson_stale_version() {
+        PersonDTO person = personDTOs.get(0);
+        String etag = given().when().get("/person/id/" + person.getId()).then().statusCode(200).extract().header("ETag");
+        given().contentType(ContentType.JSON).body("{\"phone\": \"12121212\"}").when().patch("/person/id/" + person.getId()).then().statusCode(200);
+        person.setFirstName("Sven");
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body(person)
+                .when()
+                .put("/person/id/" + person.getId())
+                .then()
+                .statusCode(HttpStatus.PRECONDITION_FAILED_412.getStatusCode());
+    }
+
+    @Test
+    public void testPatchPerson_phone_only() {
+        PersonDTO person = personDTOs.get(0);
+        String etag = given().when().get("/person/id/" + person.getId()).then().statusCode(200).extract().header("ETag");
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body("{\"phone\": \"99999999\"}")
+                .when()
+                .patch("/person/id/" + person.getId())
+                .then()
+                .statusCode(200)
+                .body("phone", is("99999999"))
+                .body("firstName", is(person.getFirstName()))
+                .body("street", is(person.getStreet()));
+    }
+
+    @Test
+    public void testPatchPerson_merge_patch_removes_phone() {
+        PersonDTO person = personDTOs.get(0);
+
+        given()
+                .contentType("application/merge-patch+json")
+                .body("{\"phone\": null}")
+                .when()
+                .patch("/person/id/" + person.getId())
+                .then()
+                .statusCode(200)
+                .body("phone", nullValue())
+                .body("firstName", is(person.getFirstName()));
+    }
+
+    @Test
+    public void testPatchPerson_merge_patch_required_field() {
+        int id = personDTOs.get(0).getId();
+
+        given()
+                .contentType("application/merge-patch+json")
+                .body("{\"lastName\": null}")
+                .when()
+                .patch("/person/id/" + id)
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST_400.getStatusCode());
+    }
+
+    @Test
+    public void testPatchPerson_gzip_etag() {
+        PersonDTO person = personDTOs.get(0);
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", "\"" + person.getVersion() + "-gzip\"")
+                .body("{\"phone\": \"99999999\"}")
+                .when()
+                .patch("/person/id/" + person.getId())
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    public void testPatchPerson_stale_version() {
+        int id = personDTOs.get(0).getId();
+        String etag = given().when().get("/person/id/" + id).then().statusCode(200).extract().header("ETag");
+        given().contentType(ContentType.JSON).body("{\"phone\": \"12121212\"}").when().patch("/person/id/" + id).then().statusCode(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", etag)
+                .body("{\"phone\": \"34343434\"}")
+                .when()
+                .patch("/person/id/" + id)
+                .then()
+                .statusCode(HttpStatus.PRECONDITION_FAILED_412.getStatusCode());
+    }
+
+    private static void addPersons(int count) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"firstName\": \"Sven").append(i)
+                    .append("\", \"lastName\": \"Svensen\", \"phone\": \"12345678\", \"street\": \"Norge\", \"zip\": 3555, \"city\": \"Oslo\"}");
+        }
+        given().contentType(ContentType.JSON).body(body.append("]").toString()).when().post("/person/batch").then().statusCode(200);
+    }
+
+    //The Content-Encoding of /all for an Accept-Encoding header, null when not encoded
+    private static String contentEncoding(String acceptEncoding) {
+        return given().config(RAW).header("Accept-Encoding", acceptEncoding).when().get("/person/all")
+                .then().statusCode(200).extract().header("Content-Encoding");
+    }
+
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = input.read(buffer)) != -1;) {
+            output.write(buffer, 0, n);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     @Test
     public void testDeletePerson_deleted() {
         int id = personDTOs.get(0).getId();
@@ -289,4 +548,88 @@ public class PersonResourceTest {
         int id = personDTOs.get(personDTOs.size() - 1).getId() + 1;
         given().when().delete("/person/id/" + id).then().statusCode(404);
     }
+
+    @Test
+    public void testAsyncGetPersonById_found() {
+        PersonDTO expected = personDTOs.get(0);
+        PersonDTO actual = given()
+                .when()
+                .get("/async/person/id/" + expected.getId())
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().body().as(PersonDTO.class);
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void testAsyncGetPersonById_not_found() {
+        int id = personDTOs.get(personDTOs.size() - 1).getId() + 1;
+        given().when().get("/async/person/id/" + id).then().statusCode(404);
+    }
+
+    @Test
+    public void testAsyncAddPersons_batch() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("[{\"firstName\": \"Sven\", \"lastName\": \"Svensen\", \"street\": \"Norge\", \"zip\": 3555, \"city\": \"Oslo\"},"
+                        + "{\"firstName\": \"Lars\", \"lastName\": \"Larsen\", \"street\": \"Norge\", \"zip\": 3555, \"city\": \"Oslo\"}]")
+                .when()
+                .post("/async/person/batch")
+                .then()
+                .statusCode(200);
+
+        given().when().get("/async/person/search?city=Oslo").then().statusCode(200).body("all.size()", is(2));
+    }
+
+    @Test
+    public void testAsyncPatchPerson_phone_only() {
+        PersonDTO person = personDTOs.get(0);
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", "\"" + person.getVersion() + "\"")
+                .body("{\"phone\": \"99999999\"}")
+                .when()
+                .patch("/async/person/id/" + person.getId())
+                .then()
+                .statusCode(200)
+                .body("phone", is("99999999"))
+                .body("firstName", is(person.getFirstName()));
+    }
+
+    @Test
+    public void testAsyncStreamAllPersons() {
+        given().when().get("/async/person/all/stream").then().statusCode(200).body("all.size()", is(personDTOs.size()));
+    }
+
+    @Test
+    public void testAsyncGetPersonById_executor_full() {
+        int id = personDTOs.get(0).getId();
+        CountDownLatch release = new CountDownLatch(1);
+        //Occupy every DbExecutor thread and queue slot until one is rejected
+        try {
+            while (true) {
+                DbExecutor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        } catch (RejectedExecutionException ex) {
+            //Full
+        }
+
+        try {
+            given()
+                    .when()
+                    .get("/async/person/id/" + id)
+                    .then()
+                    .statusCode(HttpStatus.SERVICE_UNAVAILABLE_503.getStatusCode())
+                    .body("code", is(503));
+        } finally {
+            release.countDown();
+        }
+    }
 }